@@ -1,79 +1,138 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Scanner;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
+/**
+ * Interactive:  java WeatherConsoleApp [--stats]
+ *   asks for one city and prints its current weather.
+ *
+ * Batch:        java WeatherConsoleApp --batch cities.txt|- [--format jsonl|csv]
+ *                    [--parallel N] [--out results.jsonl] [--errors errors.tsv] [--stats]
+ *   one city per line from a file or stdin ("-"); results stream to --out
+ *   (default stdout), failures to --errors (default stderr), progress and the
+ *   final summary to stderr. Exits 1 if any city failed, 2 on bad usage.
+ *
+ * --stats prints per‑phase timings and counters at the end.
+ */
 public class WeatherConsoleApp {
     public static void main(String[] args) {
+        boolean stats = false;
+        String batch = null;
+        String format = "jsonl";
+        String outPath = null;
+        String errorsPath = null;
+        int parallel = WeatherBatch.DEFAULT_PARALLELISM;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--stats":    stats = true; break;
+                    case "--batch":    batch = args[++i]; break;
+                    case "--format":   format = args[++i]; break;
+                    case "--parallel": parallel = Integer.parseInt(args[++i]); break;
+                    case "--out":      outPath = args[++i]; break;
+                    case "--errors":   errorsPath = args[++i]; break;
+                    default:           throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (parallel <= 0 || !(format.equalsIgnoreCase("jsonl") || format.equalsIgnoreCase("csv"))) {
+                throw new IllegalArgumentException("--format must be jsonl or csv, --parallel > 0");
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : "Missing option value");
+            System.exit(2);
+        }
+
+        WeatherAPIClient apiClient = new WeatherAPIClient();
+        try {
+            apiClient.setGazetteer(WeatherAPIClient.configuredGazetteer());
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        if (batch != null) {
+            WeatherBatch.Format f = WeatherBatch.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            System.exit(runBatch(apiClient, batch, f, parallel, outPath, errorsPath, stats));
+        }
+
         try (Scanner scanner = new Scanner(System.in)) {
             System.out.print("Enter city name: ");
             String city = scanner.nextLine().trim();
 
-            // Geocoding API to get latitude and longitude
-            String geoUrl = "https://geocoding-api.open-meteo.com/v1/search?name=" +
-                    city.replace(" ", "%20") + "&count=1";
-
-            HttpURLConnection geoConn = (HttpURLConnection) new URL(geoUrl).openConnection();
-            geoConn.setRequestMethod("GET");
-
-            BufferedReader geoReader = new BufferedReader(new InputStreamReader(geoConn.getInputStream()));
-            StringBuilder geoResponse = new StringBuilder();
-            String line;
-            while ((line = geoReader.readLine()) != null) {
-                geoResponse.append(line);
-            }
-            geoReader.close();
-
-            JSONObject geoJson = new JSONObject(geoResponse.toString());
-            JSONArray results = geoJson.getJSONArray("results");
-            if (results.length() == 0) {
-                System.out.println("City not found.");
+            // Geocoding + forecast through the shared client (caches, transport, record/replay)
+            WeatherResult result = apiClient.fetchWeather(city);
+            if (!result.isSuccess()) {
+                System.out.println(result.kind == WeatherResult.ErrorKind.NOT_FOUND
+                        ? "City not found."
+                        : "Could not retrieve weather: " + result.error);
                 return;
             }
-
-            JSONObject location = results.getJSONObject(0);
-            double latitude = location.getDouble("latitude");
-            double longitude = location.getDouble("longitude");
-
-            // Weather API with extra parameters
-            String weatherUrl = String.format(
-                "https://api.open-meteo.com/v1/forecast?latitude=%.4f&longitude=%.4f&current=temperature_2m,wind_speed_10m,precipitation,relative_humidity_2m,weather_code&timezone=auto",
-                latitude, longitude);
-
-            HttpURLConnection weatherConn = (HttpURLConnection) new URL(weatherUrl).openConnection();
-            weatherConn.setRequestMethod("GET");
-
-            BufferedReader weatherReader = new BufferedReader(new InputStreamReader(weatherConn.getInputStream()));
-            StringBuilder weatherResponse = new StringBuilder();
-            while ((line = weatherReader.readLine()) != null) {
-                weatherResponse.append(line);
+            WeatherData data = result.data;
+            if (result.stale) {
+                System.out.println("(Showing cached data – " + result.error + ")");
             }
-            weatherReader.close();
-
-            JSONObject weatherJson = new JSONObject(weatherResponse.toString());
-            JSONObject current = weatherJson.getJSONObject("current");
-
-            String time = current.getString("time");
-            double temperature = current.getDouble("temperature_2m");
-            double windSpeed = current.getDouble("wind_speed_10m");
-            double humidity = current.getDouble("relative_humidity_2m");
-            double precipitation = current.getDouble("precipitation");
-            int weatherCode = current.getInt("weather_code");
 
             System.out.println("\nCurrent Weather in " + city + ":");
-            System.out.println("Time: " + time);
-            System.out.println("Temperature: " + temperature + "°C");
-            System.out.println("Humidity: " + humidity + "%");
-            System.out.println("Precipitation: " + precipitation + " mm");
-            System.out.println("Wind Speed: " + windSpeed + " km/h");
-            System.out.println("Condition: " + interpretWeatherCode(weatherCode));
+            System.out.println("Time: " + data.currentTime);
+            System.out.println("Temperature: " + data.temperatureC + "°C");
+            System.out.println("Humidity: " + data.relativeHumidityPercent + "%");
+            System.out.println("Precipitation: " + data.precipitationMM + " mm");
+            System.out.println("Wind Speed: " + data.windSpeedKmh + " km/h");
+            System.out.println("Condition: " + interpretWeatherCode(data.weatherCode));
 
         } catch (Exception e) {
             System.out.println("An error occurred: " + e.getMessage());
+        } finally {
+            if (stats) {
+                System.out.println();
+                System.out.print(apiClient.getMetrics().dump());
+            }
+        }
+    }
+
+    /** Batch mode; returns the process exit code. */
+    private static int runBatch(WeatherAPIClient apiClient, String input, WeatherBatch.Format format,
+                                int parallel, String outPath, String errorsPath, boolean stats) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                     input.equals("-") ? System.in : new FileInputStream(input), StandardCharsets.UTF_8));
+             Writer out = openWriter(outPath);
+             Writer errors = openWriter(errorsPath == null ? "-stderr" : errorsPath)) {
+            WeatherBatch.Summary summary = new WeatherBatch(apiClient, format, parallel)
+                    .run(in, out, errors, System.err);
+            System.err.println("Done: " + summary);
+            if (stats) {
+                System.err.print(apiClient.getMetrics().dump());
+            }
+            apiClient.getGeocodeCache().save();
+            return summary.failed > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    /** null → stdout, "-stderr" → stderr (neither is closed), otherwise a UTF‑8 file. */
+    private static Writer openWriter(String path) throws IOException {
+        if (path == null || path.equals("-stderr")) {
+            java.io.PrintStream target = path == null ? System.out : System.err;
+            return new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
         }
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
     }
 
     public static String interpretWeatherCode(int code) {
@@ -0,0 +1,96 @@
+// bench/ForecastParserCheck.java
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.json.JSONObject;
+
+/**
+ * Standalone check that {@link ForecastStreamParser} (the default) and the
+ * org.json path ({@link WeatherAPIClient#parseForecast}) build the same
+ * {@link WeatherData}:
+ *   • for the recorded payloads in bench/payloads/
+ *   • for a response whose series hold non‑numeric values — string‑valued
+ *     daily variables (sunrise/sunset, as requested by
+ *     {@code ForecastQuery.withDaily("sunrise", "sunset")}), nulls, numeric
+ *     strings, booleans and nested values — which must become NaN (or the
+ *     string's number) rather than fail the request
+ *
+ * Prints one line per case and exits with status 1 on the first failure.
+ *
+ * Usage (from the project root, after compiling src/ and bench/ to out/):
+ *   java -cp "out:lib/*" ForecastParserCheck
+ */
+public class ForecastParserCheck {
+    private static final GeoLocation LOC = new GeoLocation("Bangkok", 13.75, 100.5);
+
+    private static final String MIXED_RESPONSE = "{"
+            + "\"utc_offset_seconds\":25200,"
+            + "\"current\":{\"time\":\"2025-02-20T04:15\",\"temperature_2m\":27.4,"
+            + "\"relative_humidity_2m\":81,\"precipitation\":0.0,\"wind_speed_10m\":5.1,\"weather_code\":2},"
+            + "\"hourly\":{\"time\":[\"2025-02-20T04:00\",\"2025-02-20T05:00\",\"2025-02-20T06:00\","
+            + "\"2025-02-20T07:00\",\"2025-02-20T08:00\"],"
+            + "\"temperature_2m\":[27.1,null,\"26.5\",true,{\"x\":[1,2]}],"
+            + "\"is_day\":[0,0,1,1,1]},"
+            + "\"daily\":{\"time\":[\"2025-02-20\",\"2025-02-21\"],"
+            + "\"sunrise\":[\"2025-02-20T06:42\",\"2025-02-21T06:41\"],"
+            + "\"temperature_2m_max\":[33.8,34.1],"
+            + "\"sunset\":[\"2025-02-20T18:21\",null],"
+            + "\"uv_index_max\":[\"1-2\",[7.5]]}"
+            + "}";
+
+    public static void main(String[] args) throws IOException {
+        try {
+            File payloads = new File(args.length > 0 ? args[0] : "bench/payloads");
+            for (String name : new String[] {"forecast.json", "forecast-default.json"}) {
+                File f = new File(payloads, name);
+                if (f.isFile()) {
+                    compare(name, Files.readAllBytes(f.toPath()));
+                } else {
+                    System.out.println("skip " + name + " (not found in " + payloads + ")");
+                }
+            }
+            WeatherData d = compare("string-valued series", MIXED_RESPONSE.getBytes(StandardCharsets.UTF_8));
+            expectColumn(d.daily, "sunrise", Double.NaN, Double.NaN);
+            expectColumn(d.daily, "sunset", Double.NaN, Double.NaN);
+            expectColumn(d.daily, "temperature_2m_max", 33.8, 34.1);
+            expectColumn(d.daily, "uv_index_max", Double.NaN, Double.NaN);
+            expectColumn(d.hourly, "temperature_2m", 27.1, Double.NaN, 26.5, Double.NaN, Double.NaN);
+            expectColumn(d.hourly, "is_day", 0, 0, 1, 1, 1);
+            System.out.println("ok   non-numeric elements read as NaN, numeric strings as numbers");
+        } catch (IllegalStateException e) {
+            System.out.println("FAIL " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("ForecastStreamParser: all checks passed");
+    }
+
+    /** Both parsers must accept the response and agree on every field, series included. */
+    private static WeatherData compare(String name, byte[] body) throws IOException {
+        WeatherData streamed = ForecastStreamParser.parse(new ByteArrayInputStream(body), LOC);
+        WeatherData viaJson = WeatherAPIClient.parseForecast(
+                new JSONObject(new String(body, StandardCharsets.UTF_8)), LOC);
+        check(streamed != null && viaJson != null, name + ": a parser returned no data");
+        String expected = viaJson.toJson(true).toString();
+        String actual = streamed.toJson(true).toString();
+        check(actual.equals(expected), name + ": parsers differ\n  org.json:  " + expected
+                + "\n  streaming: " + actual);
+        System.out.println("ok   parsers agree: " + name);
+        return streamed;
+    }
+
+    private static void expectColumn(ForecastSeries s, String variable, double... expected) {
+        check(s != null && s.columnIndex(variable) >= 0, "missing column " + variable);
+        check(s.size() == expected.length, variable + ": " + s.size() + " values, expected " + expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            double v = s.value(variable, i);
+            check(Double.compare(v, expected[i]) == 0, variable + "[" + i + "] = " + v + ", expected " + expected[i]);
+        }
+    }
+
+    private static void check(boolean ok, String failure) {
+        if (!ok) throw new IllegalStateException(failure);
+    }
+}
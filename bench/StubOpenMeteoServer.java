@@ -0,0 +1,145 @@
+// bench/StubOpenMeteoServer.java
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In‑process stand‑in for Open‑Meteo, built on the JDK's com.sun.net.httpserver.
+ *
+ * Serves the recorded payloads in bench/payloads/:
+ *   • /v1/search   → geocoding.json (for any name)
+ *   • /v1/forecast → forecast-default.json when forecast_hours is requested,
+ *                    forecast.json (7 × 24 h) otherwise; a JSON array of copies
+ *                    when several comma‑separated coordinates are requested
+ *
+ * Every response is delayed by {@code latencyMillis} to mimic a real upstream,
+ * and gzip‑encoded when the client asks for it.
+ */
+public class StubOpenMeteoServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final byte[] geocoding;
+    private final byte[] forecastFull;
+    private final byte[] forecastDefault;
+    private volatile long latencyMillis;
+
+    static {
+        // Without TCP_NODELAY, Nagle + delayed ACKs add ~40 ms to every response
+        // and the stub, not the client, would dominate end‑to‑end numbers.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /** @param port 0 picks a free port */
+    public StubOpenMeteoServer(File payloadDir, int port, long latencyMillis) throws IOException {
+        this.geocoding = Files.readAllBytes(new File(payloadDir, "geocoding.json").toPath());
+        this.forecastFull = Files.readAllBytes(new File(payloadDir, "forecast.json").toPath());
+        this.forecastDefault = Files.readAllBytes(new File(payloadDir, "forecast-default.json").toPath());
+        this.latencyMillis = latencyMillis;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/v1/search", ex -> respond(ex, geocoding));
+        server.createContext("/v1/forecast", this::forecast);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String geocodingUrl() {
+        return "http://127.0.0.1:" + port() + "/v1/search";
+    }
+
+    public String forecastUrl() {
+        return "http://127.0.0.1:" + port() + "/v1/forecast";
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /** Points a client at this stub. */
+    public void configure(WeatherAPIClient client) {
+        client.setGeocodingBaseUrl(geocodingUrl());
+        client.setForecastBaseUrl(forecastUrl());
+    }
+
+    private void forecast(HttpExchange ex) throws IOException {
+        String query = ex.getRequestURI().getRawQuery();
+        byte[] one = query != null && query.contains("forecast_hours=") ? forecastDefault : forecastFull;
+
+        int locations = 1;
+        int start = query == null ? -1 : query.indexOf("latitude=");
+        if (start >= 0) {
+            int end = query.indexOf('&', start);
+            String lats = query.substring(start, end < 0 ? query.length() : end);
+            locations = lats.split(",|%2C").length;
+        }
+        if (locations == 1) {
+            respond(ex, one);
+            return;
+        }
+        ByteArrayOutputStream array = new ByteArrayOutputStream(one.length * locations + locations + 1);
+        array.write('[');
+        for (int i = 0; i < locations; i++) {
+            if (i > 0) array.write(',');
+            array.write(one);
+        }
+        array.write(']');
+        respond(ex, array.toByteArray());
+    }
+
+    private void respond(HttpExchange ex, byte[] body) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream gz = new ByteArrayOutputStream(body.length / 4);
+                try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+                    out.write(body);
+                }
+                body = gz.toByteArray();
+                ex.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            ex.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ex.sendResponseHeaders(503, -1);
+        } finally {
+            ex.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    /** Standalone: java … StubOpenMeteoServer [port] [latencyMillis] */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        StubOpenMeteoServer stub = new StubOpenMeteoServer(new File("bench/payloads"), port, latency);
+        System.out.println("Stub Open‑Meteo on " + stub.geocodingUrl() + " and " + stub.forecastUrl());
+        // The server's dispatcher thread keeps the JVM alive until killed
+    }
+}
@@ -0,0 +1,251 @@
+// bench/WeatherBenchmarks.java
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Benchmarks for the fetch/parse pipeline that run with no network.
+ *
+ * A small self‑contained harness (warm‑up, then timed iterations) in the
+ * spirit of JMH, so it runs from plain javac like the rest of the project.
+ * For every benchmark it reports:
+ *   • throughput    – ops/s
+ *   • average time  – µs/op
+ *   • allocation    – bytes/op and MB/s on the calling thread
+ *     (the same figure JMH's gc profiler reports as gc.alloc.rate.norm)
+ *
+ * Codec benchmarks compare {@link WeatherDataCodec} with the JSON form
+ * ({@link WeatherData#toJson(boolean)}); before running they check that
+ * binary records and batches round‑trip exactly and print both sizes.
+ *
+ * End‑to‑end benchmarks call {@link WeatherAPIClient#fetchWeatherForCity(String)}
+ * against an in‑process {@link StubOpenMeteoServer} serving the recorded
+ * payloads in bench/payloads/, optionally with added latency.
+ *
+ * Usage (from the project root, after compiling src/ and bench/ to out/):
+ *   java -cp "out:lib/*" WeatherBenchmarks [--filter text] [--warmup ms] [--time ms]
+ *                                           [--iterations n] [--latency ms]
+ */
+public class WeatherBenchmarks {
+    /** Consumes results so the JIT can't drop the measured work. */
+    static volatile int sink;
+
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = "";
+        long warmupMs = 2000;
+        long timeMs = 1000;
+        int iterations = 5;
+        long latencyMs = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--filter":     filter = args[++i]; break;
+                case "--warmup":     warmupMs = Long.parseLong(args[++i]); break;
+                case "--time":       timeMs = Long.parseLong(args[++i]); break;
+                case "--iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "--latency":    latencyMs = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        File payloads = new File("bench/payloads");
+        byte[] geoBytes = Files.readAllBytes(new File(payloads, "geocoding.json").toPath());
+        byte[] fullBytes = Files.readAllBytes(new File(payloads, "forecast.json").toPath());
+        byte[] defaultBytes = Files.readAllBytes(new File(payloads, "forecast-default.json").toPath());
+        String geoJson = new String(geoBytes, StandardCharsets.UTF_8);
+        String fullJson = new String(fullBytes, StandardCharsets.UTF_8);
+        GeoLocation loc = new GeoLocation("Bangkok", 13.75398, 100.50144);
+
+        // Pre‑parsed inputs for the model / index benchmarks
+        WeatherData parsed = ForecastStreamParser.parse(new ByteArrayInputStream(fullBytes), loc);
+        JSONArray timeArray = new JSONObject(fullJson).getJSONObject("hourly").getJSONArray("time");
+        String[] times = new String[timeArray.length()];
+        for (int i = 0; i < times.length; i++) times[i] = timeArray.getString(i);
+        String nowHour = parsed.currentTime.substring(0, 14) + "00";
+
+        // Codec inputs: one 168 h record and a 50‑city batch (10 distinct names)
+        List<WeatherData> batch = new ArrayList<>();
+        for (int i = 0; i < WeatherAPIClient.FORECAST_BATCH_SIZE; i++) {
+            batch.add(ForecastStreamParser.parse(new ByteArrayInputStream(fullBytes),
+                    new GeoLocation("City " + (i % 10), loc.latitude + i, loc.longitude)));
+        }
+        byte[] binRecord = WeatherDataCodec.toBytes(parsed);
+        byte[] binBatch = WeatherDataCodec.toBytes(batch);
+        String jsonRecord = parsed.toJson(true).toString();
+        String jsonBatch = batchJson(batch);
+        checkRoundTrip(parsed, batch, binRecord, binBatch);
+        System.out.printf(Locale.ROOT, "codec sizes: record %d B binary vs %d B JSON, batch(%d) %d B vs %d B%n%n",
+                binRecord.length, jsonRecord.getBytes(StandardCharsets.UTF_8).length, batch.size(),
+                binBatch.length, jsonBatch.getBytes(StandardCharsets.UTF_8).length);
+        ByteBuffer encodeBuf = ByteBuffer.allocate(WeatherDataCodec.maxEncodedSize(parsed));
+        ByteBuffer batchBuf = ByteBuffer.allocate(binBatch.length * 4);
+        ByteBuffer recordIn = ByteBuffer.wrap(binRecord);
+        ByteBuffer batchIn = ByteBuffer.wrap(binBatch);
+
+        StubOpenMeteoServer stub = new StubOpenMeteoServer(payloads, 0, latencyMs);
+        WeatherAPIClient client = new WeatherAPIClient();
+        client.setRateLimiter(null); // measure the pipeline, not the admission layer
+        stub.configure(client);
+
+        Map<String, Op> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("parse.geocoding.orgjson", () -> {
+            JSONObject first = new JSONObject(geoJson).getJSONArray("results").getJSONObject(0);
+            return new GeoLocation(first.getString("name"),
+                    first.getDouble("latitude"), first.getDouble("longitude"));
+        });
+        benchmarks.put("parse.forecast168h.orgjson", () ->
+                WeatherAPIClient.parseForecast(new JSONObject(
+                        new String(fullBytes, StandardCharsets.UTF_8)), loc));
+        benchmarks.put("parse.forecast168h.streaming", () ->
+                ForecastStreamParser.parse(new ByteArrayInputStream(fullBytes), loc));
+        benchmarks.put("parse.forecast4h.streaming", () ->
+                ForecastStreamParser.parse(new ByteArrayInputStream(defaultBytes), loc));
+        benchmarks.put("model.weatherData.build168h", () -> {
+            ForecastSeries.Builder b = new ForecastSeries.Builder();
+            int c = b.column("temperature_2m");
+            for (int i = 0; i < parsed.hourly.size(); i++) {
+                b.addLocalMinutes(Math.floorDiv(parsed.hourly.epochSecond(i) + parsed.utcOffsetSeconds, 60L));
+                b.addValue(c, parsed.hourly.value(c, i));
+            }
+            WeatherData d = new WeatherData();
+            d.cityName = loc.name;
+            d.currentTime = parsed.currentTime;
+            d.hourly = b.build(parsed.utcOffsetSeconds);
+            d.deriveShortForecast();
+            return d;
+        });
+        benchmarks.put("index.currentHour.arithmetic", parsed::currentHourIndex);
+        benchmarks.put("index.currentHour.stringScan", () -> {
+            for (int i = 0; i < times.length; i++) {
+                if (times[i].equals(nowHour)) return i;
+            }
+            return 0;
+        });
+        benchmarks.put("codec.encode.binary168h", () -> {
+            encodeBuf.clear();
+            WeatherDataCodec.encode(parsed, encodeBuf);
+            return encodeBuf;
+        });
+        benchmarks.put("codec.encode.json168h", () -> parsed.toJson(true).toString());
+        benchmarks.put("codec.decode.binary168h", () -> {
+            recordIn.rewind();
+            return WeatherDataCodec.decode(recordIn);
+        });
+        // JSON has no model decoder; parsing alone is a lower bound for it
+        benchmarks.put("codec.decode.json168h.parseOnly", () -> new JSONObject(jsonRecord));
+        benchmarks.put("codec.encode.binaryBatch50", () -> {
+            batchBuf.clear();
+            WeatherDataCodec.encodeBatch(batch, batchBuf);
+            return batchBuf;
+        });
+        benchmarks.put("codec.encode.jsonBatch50", () -> batchJson(batch));
+        benchmarks.put("codec.decode.binaryBatch50", () -> {
+            batchIn.rewind();
+            return WeatherDataCodec.decodeBatch(batchIn);
+        });
+        benchmarks.put("codec.decode.jsonBatch50.parseOnly", () -> new JSONArray(jsonBatch));
+        benchmarks.put("e2e.fetch.cold", () -> {
+            client.getGeocodeCache().clear();
+            client.getForecastCache().clear();
+            return client.fetchWeatherForCity("Bangkok");
+        });
+        benchmarks.put("e2e.fetch.forecastOnly", () -> {
+            client.getForecastCache().clear();
+            return client.fetchWeatherForCity("Bangkok");
+        });
+        benchmarks.put("e2e.fetch.cached", () -> client.fetchWeatherForCity("Bangkok"));
+
+        System.out.printf(Locale.ROOT, "%-32s %14s %12s %14s %12s%n",
+                "Benchmark", "ops/s", "µs/op", "alloc B/op", "alloc MB/s");
+        try {
+            for (Map.Entry<String, Op> b : benchmarks.entrySet()) {
+                if (!b.getKey().contains(filter)) continue;
+                run(b.getKey(), b.getValue(), warmupMs, timeMs, iterations);
+            }
+        } finally {
+            stub.close();
+        }
+    }
+
+    private static void run(String name, Op op, long warmupMs, long timeMs, int iterations) throws Exception {
+        // Warm‑up
+        long end = System.nanoTime() + warmupMs * 1_000_000L;
+        while (System.nanoTime() < end) {
+            consume(op.run());
+        }
+
+        // Measurement
+        List<Double> opsPerSec = new ArrayList<>();
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int it = 0; it < iterations; it++) {
+            long ops = 0;
+            long bytes0 = allocatedBytes();
+            long start = System.nanoTime();
+            long stop = start + timeMs * 1_000_000L;
+            long now;
+            do {
+                consume(op.run());
+                ops++;
+            } while ((now = System.nanoTime()) < stop);
+            totalBytes += allocatedBytes() - bytes0;
+            totalNanos += now - start;
+            totalOps += ops;
+            opsPerSec.add(ops * 1e9 / (now - start));
+        }
+
+        double throughput = totalOps * 1e9 / totalNanos;
+        double avgMicros = totalNanos / 1e3 / totalOps;
+        double bytesPerOp = (double) totalBytes / totalOps;
+        double mbPerSec = totalBytes / 1048576.0 / (totalNanos / 1e9);
+        double min = opsPerSec.stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        double max = opsPerSec.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        System.out.printf(Locale.ROOT, "%-32s %14.1f %12.3f %14.1f %12.1f   (ops/s range %.0f–%.0f)%n",
+                name, throughput, avgMicros, bytesPerOp, mbPerSec, min, max);
+    }
+
+    private static String batchJson(List<WeatherData> batch) {
+        JSONArray a = new JSONArray();
+        for (WeatherData d : batch) a.put(d.toJson(true));
+        return a.toString();
+    }
+
+    /** Binary form must decode to the same JSON, series included. */
+    private static void checkRoundTrip(WeatherData record, List<WeatherData> batch, byte[] binRecord, byte[] binBatch) {
+        String expected = record.toJson(true).toString();
+        if (!WeatherDataCodec.decode(ByteBuffer.wrap(binRecord)).toJson(true).toString().equals(expected)) {
+            throw new IllegalStateException("WeatherDataCodec record round trip differs");
+        }
+        List<WeatherData> decoded = WeatherDataCodec.decodeBatch(ByteBuffer.wrap(binBatch));
+        if (!batchJson(decoded).equals(batchJson(batch))) {
+            throw new IllegalStateException("WeatherDataCodec batch round trip differs");
+        }
+    }
+
+    private static void consume(Object o) {
+        sink ^= o == null ? 0 : System.identityHashCode(o);
+    }
+
+    /** Bytes allocated so far by the calling thread (HotSpot extension). */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,277 @@
+// bench/WeatherDataCodecCheck.java
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Standalone correctness check for {@link WeatherDataCodec}, covering the
+ * encodings the recorded payloads in bench/payloads/ never hit:
+ *   • round trips (single record and batch, heap and direct buffers) of
+ *     raw‑double columns, an irregular time axis, a stored 3‑hour forecast
+ *     (no temperature_2m to rebuild it from), NaN values and a null city;
+ *     fields and series are compared bit for bit
+ *   • rejection of every truncated prefix (BufferUnderflowException, or
+ *     IllegalArgumentException when a count exceeds the bytes left) and of
+ *     a bad magic, an unknown version or unknown flags (IllegalArgumentException)
+ *
+ * Prints one line per case and exits with status 1 on the first failure.
+ *
+ * Usage (from the project root, after compiling src/ and bench/ to out/):
+ *   java -cp "out:lib/*" WeatherDataCodecCheck
+ */
+public class WeatherDataCodecCheck {
+    private static final long START_MINUTES = 29_000_160L; // 2025‑02‑20T00:00 local
+
+    public static void main(String[] args) {
+        try {
+            roundTrip("raw double columns", rawColumns());
+            roundTrip("irregular time axis", irregularTimes());
+            roundTrip("stored forecast list", storedForecastList());
+            roundTrip("NaN values", nanValues());
+            roundTrip("null city", nullCity());
+            roundTrip("sliced series", sliced());
+            roundTripBatch(List.of(rawColumns(), irregularTimes(), storedForecastList(), nanValues(),
+                    nullCity(), rawColumns()));
+            rejectTruncated(WeatherDataCodec.toBytes(irregularTimes()), false);
+            rejectTruncated(WeatherDataCodec.toBytes(List.of(nanValues(), nullCity())), true);
+            rejectHeaders();
+        } catch (IllegalStateException e) {
+            System.out.println("FAIL " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("WeatherDataCodec: all checks passed");
+    }
+
+    // ------------------------------------------------------------------ cases
+
+    /** Values with more than one decimal, huge values and -0.0 force COLUMN_RAW. */
+    private static WeatherData rawColumns() {
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        int temp = b.column("temperature_2m");
+        int wind = b.column("wind_speed_10m");
+        for (int i = 0; i < 48; i++) {
+            b.addLocalMinutes(START_MINUTES + 60L * i);
+            b.addValue(temp, 20 + i * 0.37 + Math.PI / 100);
+            b.addValue(wind, i % 2 == 0 ? -0.0 : 1e300 / (i + 1));
+        }
+        WeatherData d = base("Bangkok", b, 25200);
+        d.daily = dailySeries(25200);
+        d.deriveShortForecast();
+        return d;
+    }
+
+    /** Gaps and an hour repeated across a DST change force TIMES_DELTA. */
+    private static WeatherData irregularTimes() {
+        long[] offsets = {0, 60, 120, 240, 241, 300, 300, 1440, 1380, 10_000};
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        int temp = b.column("temperature_2m");
+        int rain = b.column("precipitation");
+        for (int i = 0; i < offsets.length; i++) {
+            b.addLocalMinutes(START_MINUTES + offsets[i]);
+            b.addValue(temp, 10.5 - i);
+            b.addValue(rain, i * 0.1);
+        }
+        WeatherData d = base("Zürich", b, 3600);
+        d.deriveShortForecast();
+        return d;
+    }
+
+    /** No temperature_2m column, so the 3‑hour forecast can't be rebuilt and is stored. */
+    private static WeatherData storedForecastList() {
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        int rain = b.column("precipitation");
+        for (int i = 0; i < 6; i++) {
+            b.addLocalMinutes(START_MINUTES + 60L * i);
+            b.addValue(rain, i);
+        }
+        WeatherData d = base("São Paulo", b, -10800);
+        d.forecastList.add(new WeatherData.ForecastEntry("2025-02-20T03:00", 24.25));
+        d.forecastList.add(new WeatherData.ForecastEntry("2025-02-20T04:00", Double.NaN));
+        d.forecastList.add(new WeatherData.ForecastEntry(null, -1.5));
+        return d;
+    }
+
+    /** NaN in the current conditions and in both decimal and raw columns. */
+    private static WeatherData nanValues() {
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        int temp = b.column("temperature_2m");
+        int humidity = b.column("relative_humidity_2m");
+        for (int i = 0; i < 24; i++) {
+            b.addLocalMinutes(START_MINUTES + 60L * i);
+            b.addValue(temp, i % 3 == 0 ? Double.NaN : 15 + i * 0.5);
+            b.addValue(humidity, i % 4 == 0 ? Double.NaN : 50 + i / 7.0);
+        }
+        WeatherData d = base("Reykjavík", b, 0);
+        d.temperatureC = Double.NaN;
+        d.windSpeedKmh = Double.NaN;
+        d.deriveShortForecast();
+        return d;
+    }
+
+    /** A slice shares its parent's arrays at a non‑zero offset. */
+    private static WeatherData sliced() {
+        WeatherData d = rawColumns();
+        d.hourly = d.hourly.slice(5, 20);
+        d.deriveShortForecast();
+        return d;
+    }
+
+    private static WeatherData nullCity() {
+        WeatherData d = base(null, null, 0);
+        d.currentTime = null;
+        return d;
+    }
+
+    private static WeatherData base(String city, ForecastSeries.Builder hourly, int utcOffsetSeconds) {
+        WeatherData d = new WeatherData();
+        d.cityName = city;
+        d.latitude = 13.75;
+        d.longitude = 100.5167;
+        d.currentTime = "2025-02-20T04:15";
+        d.utcOffsetSeconds = utcOffsetSeconds;
+        d.temperatureC = 31.2;
+        d.relativeHumidityPercent = 64;
+        d.precipitationMM = 0.1;
+        d.windSpeedKmh = 7.9;
+        d.weatherCode = 3;
+        d.hourly = hourly != null ? hourly.build(utcOffsetSeconds) : null;
+        return d;
+    }
+
+    private static ForecastSeries dailySeries(int utcOffsetSeconds) {
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        int max = b.column("temperature_2m_max");
+        for (int i = 0; i < 7; i++) {
+            b.addLocalMinutes(START_MINUTES + 1440L * i);
+            b.addValue(max, 33.3 - i * 0.1);
+        }
+        return b.build(utcOffsetSeconds);
+    }
+
+    // ---------------------------------------------------------------- checks
+
+    private static void roundTrip(String name, WeatherData d) {
+        byte[] bytes = WeatherDataCodec.toBytes(d);
+        expectSame(name + " (heap)", d, WeatherDataCodec.decode(ByteBuffer.wrap(bytes)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(WeatherDataCodec.maxEncodedSize(d));
+        WeatherDataCodec.encode(d, direct);
+        direct.flip();
+        expectSame(name + " (direct)", d, WeatherDataCodec.decode(direct));
+        check(!direct.hasRemaining(), name + ": decode left " + direct.remaining() + " bytes");
+        System.out.println("ok   round trip: " + name + " (" + bytes.length + " B)");
+    }
+
+    private static void roundTripBatch(List<WeatherData> batch) {
+        byte[] bytes = WeatherDataCodec.toBytes(batch);
+        List<WeatherData> decoded = WeatherDataCodec.decodeBatch(ByteBuffer.wrap(bytes));
+        check(decoded.size() == batch.size(), "batch: " + decoded.size() + " records, expected " + batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            expectSame("batch record " + i, batch.get(i), decoded.get(i));
+        }
+        System.out.println("ok   round trip: batch of " + batch.size() + " (" + bytes.length + " B)");
+    }
+
+    /** Every proper prefix must be rejected rather than decode to something. */
+    private static void rejectTruncated(byte[] bytes, boolean batch) {
+        for (int len = 0; len < bytes.length; len++) {
+            ByteBuffer in = ByteBuffer.wrap(Arrays.copyOf(bytes, len));
+            try {
+                if (batch) WeatherDataCodec.decodeBatch(in);
+                else WeatherDataCodec.decode(in);
+                throw new IllegalStateException("truncated " + (batch ? "batch" : "record")
+                        + " of " + len + "/" + bytes.length + " B decoded");
+            } catch (BufferUnderflowException | IllegalArgumentException expected) {
+                // rejected: ran out of bytes, or a length prefix claims more than remain
+            }
+        }
+        System.out.println("ok   rejects every truncated " + (batch ? "batch" : "record")
+                + " prefix (" + bytes.length + " lengths)");
+    }
+
+    private static void rejectHeaders() {
+        byte[] record = WeatherDataCodec.toBytes(rawColumns());
+        byte[] batch = WeatherDataCodec.toBytes(List.of(rawColumns()));
+
+        expectRejected("bad record magic", patch(record, 0, 'X'), false);
+        expectRejected("batch magic in decode", batch, false);
+        expectRejected("record magic in decodeBatch", record, true);
+        expectRejected("unknown record version", patch(record, 2, WeatherDataCodec.VERSION + 1), false);
+        expectRejected("unknown batch version", patch(batch, 2, WeatherDataCodec.VERSION + 1), true);
+        expectRejected("version 0", patch(record, 2, 0), false);
+        expectRejected("unknown flags", patch(record, 3, 0x80), false);
+    }
+
+    private static void expectRejected(String name, byte[] bytes, boolean batch) {
+        try {
+            if (batch) WeatherDataCodec.decodeBatch(ByteBuffer.wrap(bytes));
+            else WeatherDataCodec.decode(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException expected) {
+            System.out.println("ok   rejects " + name + ": " + expected.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(name + ": expected IllegalArgumentException, got " + e);
+        }
+        throw new IllegalStateException(name + ": decoded without error");
+    }
+
+    private static byte[] patch(byte[] bytes, int index, int value) {
+        byte[] copy = bytes.clone();
+        copy[index] = (byte) value;
+        return copy;
+    }
+
+    // ------------------------------------------------------------ comparison
+
+    private static void expectSame(String name, WeatherData a, WeatherData b) {
+        check(Objects.equals(a.cityName, b.cityName), name + ": cityName " + b.cityName);
+        same(name + ": latitude", a.latitude, b.latitude);
+        same(name + ": longitude", a.longitude, b.longitude);
+        check(Objects.equals(a.currentTime, b.currentTime), name + ": currentTime " + b.currentTime);
+        check(a.utcOffsetSeconds == b.utcOffsetSeconds, name + ": utcOffsetSeconds " + b.utcOffsetSeconds);
+        same(name + ": temperatureC", a.temperatureC, b.temperatureC);
+        same(name + ": relativeHumidityPercent", a.relativeHumidityPercent, b.relativeHumidityPercent);
+        same(name + ": precipitationMM", a.precipitationMM, b.precipitationMM);
+        same(name + ": windSpeedKmh", a.windSpeedKmh, b.windSpeedKmh);
+        check(a.weatherCode == b.weatherCode, name + ": weatherCode " + b.weatherCode);
+
+        check(a.forecastList.size() == b.forecastList.size(),
+                name + ": forecastList has " + b.forecastList.size() + " entries");
+        for (int i = 0; i < a.forecastList.size(); i++) {
+            WeatherData.ForecastEntry x = a.forecastList.get(i), y = b.forecastList.get(i);
+            check(Objects.equals(x.time, y.time), name + ": forecastList[" + i + "].time " + y.time);
+            same(name + ": forecastList[" + i + "].tempC", x.tempC, y.tempC);
+        }
+        expectSame(name + ": hourly", a.hourly, b.hourly);
+        expectSame(name + ": daily", a.daily, b.daily);
+    }
+
+    private static void expectSame(String name, ForecastSeries a, ForecastSeries b) {
+        if (a == null || b == null) {
+            check(a == b, name + (a == null ? " appeared" : " went missing"));
+            return;
+        }
+        check(a.utcOffsetSeconds == b.utcOffsetSeconds, name + ": utcOffsetSeconds " + b.utcOffsetSeconds);
+        check(a.size() == b.size(), name + ": size " + b.size() + ", expected " + a.size());
+        check(a.variables().equals(b.variables()), name + ": variables " + b.variables());
+        for (int i = 0; i < a.size(); i++) {
+            check(a.epochSecond(i) == b.epochSecond(i), name + ": time[" + i + "] " + b.epochSecond(i));
+            for (int c = 0; c < a.variables().size(); c++) {
+                same(name + ": " + a.variables().get(c) + "[" + i + "]", a.value(c, i), b.value(c, i));
+            }
+        }
+    }
+
+    /** Bit‑exact (so -0.0 differs from 0.0), except that any NaN matches any NaN. */
+    private static void same(String name, double expected, double actual) {
+        check(Double.doubleToRawLongBits(expected) == Double.doubleToRawLongBits(actual)
+                || Double.isNaN(expected) && Double.isNaN(actual),
+                name + " = " + actual + ", expected " + expected);
+    }
+
+    private static void check(boolean ok, String failure) {
+        if (!ok) throw new IllegalStateException(failure);
+    }
+}
@@ -0,0 +1,126 @@
+// src/AppSnapshot.java
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The last‑known state of {@link WeatherApp}, saved on exit so the next
+ * launch can paint it straight away:
+ *   • the history list (newest last)
+ *   • the last forecast of every city in it
+ *   • the city on screen and the selected units
+ *
+ * File layout (big endian, via Data streams):
+ *   "WSNP", version (byte), saved‑at epoch millis (long), fahrenheit (boolean),
+ *   shown city (UTF, "" = none), history count (int) + entries (UTF),
+ *   length (int) + a {@link WeatherDataCodec} batch of the forecasts.
+ *
+ * Like the geocode snapshot, the file is written to a temp sibling and
+ * moved into place, so a crash never leaves a half‑written one behind.
+ */
+public class AppSnapshot {
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'W', 'S', 'N', 'P'};
+
+    public final long savedAtMillis;
+    public final boolean fahrenheit;
+    /** City on screen when the app was closed, or null. */
+    public final String shownCity;
+    public final List<String> history;
+    /** One forecast per city, as last shown or refreshed. */
+    public final List<WeatherData> forecasts;
+
+    public AppSnapshot(long savedAtMillis, boolean fahrenheit, String shownCity,
+                       List<String> history, List<WeatherData> forecasts) {
+        this.savedAtMillis = savedAtMillis;
+        this.fahrenheit = fahrenheit;
+        this.shownCity = shownCity;
+        this.history = Collections.unmodifiableList(new ArrayList<>(history));
+        this.forecasts = Collections.unmodifiableList(new ArrayList<>(forecasts));
+    }
+
+    /** The forecast saved for {@code city}, or null. */
+    public WeatherData forecastFor(String city) {
+        for (WeatherData d : forecasts) {
+            if (d.cityName != null && d.cityName.equals(city)) return d;
+        }
+        return null;
+    }
+
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(savedAtMillis);
+            out.writeBoolean(fahrenheit);
+            out.writeUTF(shownCity == null ? "" : shownCity);
+            out.writeInt(history.size());
+            for (String h : history) out.writeUTF(h);
+            byte[] batch = WeatherDataCodec.toBytes(forecasts);
+            out.writeInt(batch.length);
+            out.write(batch);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), bytes.toByteArray());
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a snapshot; null if the file doesn't exist. Throws IOException
+     * if it is damaged or from an unknown version.
+     */
+    public static AppSnapshot read(File file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            int version = in.readUnsignedByte();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+                throw new IOException("Not a version " + VERSION + " app snapshot: " + file);
+            }
+            long savedAt = in.readLong();
+            boolean fahrenheit = in.readBoolean();
+            String shown = in.readUTF();
+            int n = in.readInt();
+            if (n < 0 || n > bytes.length) {
+                throw new IOException("Corrupt app snapshot: " + file);
+            }
+            List<String> history = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) history.add(in.readUTF());
+            int len = in.readInt();
+            if (len < 0 || len > in.available()) {
+                throw new IOException("Corrupt app snapshot: " + file);
+            }
+            byte[] batch = new byte[len];
+            in.readFully(batch);
+            List<WeatherData> forecasts;
+            try {
+                forecasts = WeatherDataCodec.decodeBatch(ByteBuffer.wrap(batch));
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt app snapshot: " + file, e);
+            }
+            return new AppSnapshot(savedAt, fahrenheit, shown.isEmpty() ? null : shown, history, forecasts);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+// src/BackgroundImages.java
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The four time‑of‑day backgrounds of {@link WeatherApp}, decoded once.
+ *
+ *   • {@link #preload()} reads every JPEG on a background thread, so no
+ *     search ever runs ImageIO on the Event Dispatch Thread.
+ *   • Each decoded image is converted to the screen's compatible pixel
+ *     format (ImageIO returns 3‑byte BGR, which Java2D can't accelerate) and
+ *     shrunk to at most the screen size in device pixels, so later scaling
+ *     to a panel starts from a small, fast source.
+ *
+ * Missing or unreadable files simply have no image ({@link #get} returns
+ * null). Thread‑safe.
+ */
+public class BackgroundImages {
+    /** Part of the day a background stands for, by local hour. */
+    public enum Period {
+        SUNRISE("sunrise.jpg"),
+        DAY("day.jpg"),
+        SUNSET("sunset.jpg"),
+        NIGHT("night.jpg");
+
+        public final String fileName;
+
+        Period(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /** 05–07 sunrise, 08–17 day, 18–19 sunset, else night. */
+        public static Period forHour(int hour) {
+            if (hour >= 5 && hour <= 7) return SUNRISE;
+            if (hour >= 8 && hour <= 17) return DAY;
+            if (hour >= 18 && hour <= 19) return SUNSET;
+            return NIGHT;
+        }
+    }
+
+    private final File folder;
+    private final Map<Period, BufferedImage> images = new EnumMap<>(Period.class);
+    private volatile CompletableFuture<Void> loading;
+
+    public BackgroundImages(File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Starts decoding all four images in the background (once); the future
+     * completes when they are available.
+     */
+    public synchronized CompletableFuture<Void> preload() {
+        if (loading == null) {
+            loading = CompletableFuture.runAsync(() -> {
+                for (Period p : Period.values()) {
+                    BufferedImage img = load(new File(folder, p.fileName));
+                    synchronized (images) {
+                        images.put(p, img);
+                    }
+                }
+            });
+        }
+        return loading;
+    }
+
+    /** The decoded image for {@code period}, or null if missing or not loaded yet. */
+    public BufferedImage get(Period period) {
+        synchronized (images) {
+            return images.get(period);
+        }
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    private static BufferedImage load(File file) {
+        if (!file.isFile()) {
+            return null; // the user hasn't provided this image
+        }
+        try {
+            BufferedImage raw = ImageIO.read(file);
+            return raw == null ? null : toScreenImage(raw);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot read background " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Copy in the screen's pixel format, no larger than the screen (device pixels). */
+    private static BufferedImage toScreenImage(BufferedImage raw) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return raw;
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        Rectangle screen = gc.getBounds();
+        // Panels stretch the image per axis anyway, so each axis is capped on its own
+        int w = Math.min(raw.getWidth(), (int) Math.ceil(screen.width * gc.getDefaultTransform().getScaleX()));
+        int h = Math.min(raw.getHeight(), (int) Math.ceil(screen.height * gc.getDefaultTransform().getScaleY()));
+        return scaledCopy(raw, gc, w, h);
+    }
+
+    /** {@code src} scaled to w × h (bilinear) in a compatible, opaque image. */
+    static BufferedImage scaledCopy(BufferedImage src, GraphicsConfiguration gc, int w, int h) {
+        BufferedImage out = gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.OPAQUE)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+// src/CircuitBreaker.java
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker for one upstream API.
+ *
+ *   • CLOSED    → calls go through; {@code failureThreshold} consecutive
+ *                 failures open the circuit.
+ *   • OPEN      → calls fail fast for {@code openMillis}.
+ *   • HALF_OPEN → a single probe call is let through; success closes the
+ *                 circuit, failure re‑opens it. A probe that never reports
+ *                 back is replaced after another {@code openMillis}.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private long probeStartedAtMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("failureThreshold and openMillis must be > 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /** Whether a call may go upstream now. Counts a rejection when it may not. */
+    public synchronized boolean allowRequest() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAtMillis >= openMillis) {
+                    state = State.HALF_OPEN;
+                    probeStartedAtMillis = now;
+                    return true;
+                }
+                break;
+            case HALF_OPEN:
+                if (now - probeStartedAtMillis >= openMillis) {
+                    probeStartedAtMillis = now;
+                    return true;
+                }
+                break;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Milliseconds until an open circuit lets a probe through (0 if not open). */
+    public synchronized long getRetryAfterMillis() {
+        return state == State.OPEN
+             ? Math.max(0, openedAtMillis + openMillis - System.currentTimeMillis())
+             : 0;
+    }
+
+    /** Calls refused while the circuit was open. */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
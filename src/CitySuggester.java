@@ -0,0 +1,172 @@
+// src/CitySuggester.java
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * City name suggestions for a search box, merged from three sources:
+ *
+ *   1. cities the user has already looked up ({@link #addKnown}), kept in a
+ *      sorted in‑memory index and listed first
+ *   2. an optional offline {@link GazetteerIndex} (bundled city names)
+ *   3. the Geocoding API ({@code count=10}), only for prefixes of at least
+ *      {@value #MIN_REMOTE_PREFIX} characters that the local sources can't
+ *      fill; responses are cached per prefix (LRU)
+ *
+ * {@link #suggestLocal} never touches the network and is cheap enough to
+ * call on every keystroke. {@link #suggestRemote} returns a future and
+ * cancels the previous remote request, so only the latest prefix costs an
+ * upstream call; callers debounce it.
+ *
+ * Thread‑safe; callbacks of the returned futures run on client workers.
+ */
+public class CitySuggester {
+    public static final int DEFAULT_LIMIT = 10;
+    /** The Geocoding API only does fuzzy matching from three characters on. */
+    public static final int MIN_REMOTE_PREFIX = 3;
+    private static final int MAX_CACHED_PREFIXES = 256;
+
+    private final WeatherAPIClient client;
+    private volatile GazetteerIndex gazetteer;
+
+    /** Folded name + coordinates → match; sorted, so a prefix is a sub‑map. */
+    private final TreeMap<String, GazetteerIndex.Match> known = new TreeMap<>();
+    private final LinkedHashMap<String, List<GazetteerIndex.Match>> remoteCache =
+        new LinkedHashMap<String, List<GazetteerIndex.Match>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<GazetteerIndex.Match>> eldest) {
+                return size() > MAX_CACHED_PREFIXES;
+            }
+        };
+    private CompletableFuture<List<GazetteerIndex.Match>> pending;
+
+    public CitySuggester(WeatherAPIClient client, GazetteerIndex gazetteer) {
+        this.client = client;
+        this.gazetteer = gazetteer;
+    }
+
+    /** Bundled names to suggest from; may be set once loaded in the background. */
+    public void setGazetteer(GazetteerIndex gazetteer) {
+        this.gazetteer = gazetteer;
+    }
+
+    /** Remembers a city the user has resolved, so it is suggested first. */
+    public void addKnown(String name, double latitude, double longitude) {
+        GazetteerIndex.Match m = new GazetteerIndex.Match(new GeoLocation(name, latitude, longitude), "", 0);
+        synchronized (known) {
+            known.put(GazetteerIndex.fold(name) + '\0' + cell(m.location), m);
+        }
+    }
+
+    /**
+     * Suggestions available without a network call: known cities, the
+     * gazetteer and any cached API response for this exact prefix.
+     */
+    public List<GazetteerIndex.Match> suggestLocal(String prefix, int limit) {
+        String key = GazetteerIndex.fold(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GazetteerIndex.Match> cached;
+        synchronized (remoteCache) {
+            cached = remoteCache.get(key);
+        }
+        return merge(key, cached, limit);
+    }
+
+    /**
+     * True when {@code prefix} is long enough for the API, hasn't been asked
+     * yet and the local sources return fewer than {@code limit} cities.
+     */
+    public boolean needsRemote(String prefix, int limit) {
+        String key = GazetteerIndex.fold(prefix);
+        if (key.length() < MIN_REMOTE_PREFIX) {
+            return false;
+        }
+        synchronized (remoteCache) {
+            if (remoteCache.containsKey(key)) return false;
+        }
+        return merge(key, null, limit).size() < limit;
+    }
+
+    /**
+     * Asks the Geocoding API for {@code prefix} (unless cached), cancelling the
+     * previous remote request, and completes with the merged suggestions.
+     * A failed request completes exceptionally and is not cached.
+     */
+    public CompletableFuture<List<GazetteerIndex.Match>> suggestRemote(String prefix, int limit) {
+        String key = GazetteerIndex.fold(prefix);
+        cancel();
+        synchronized (remoteCache) {
+            if (remoteCache.containsKey(key) || key.length() < MIN_REMOTE_PREFIX) {
+                return CompletableFuture.completedFuture(merge(key, remoteCache.get(key), limit));
+            }
+        }
+        CompletableFuture<List<GazetteerIndex.Match>> request = client.searchCitiesAsync(prefix, DEFAULT_LIMIT);
+        synchronized (this) {
+            pending = request;
+        }
+        return request.thenApply(found -> {
+            synchronized (remoteCache) {
+                remoteCache.put(key, found);
+            }
+            return merge(key, found, limit);
+        });
+    }
+
+    /** Cancels the outstanding remote request, if any. */
+    public synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    /**
+     * Known cities first, then gazetteer and API matches by population;
+     * one entry per place (same folded name within about 10 km).
+     */
+    private List<GazetteerIndex.Match> merge(String key, List<GazetteerIndex.Match> remote, int limit) {
+        Map<String, GazetteerIndex.Match> out = new LinkedHashMap<>();
+        synchronized (known) {
+            for (GazetteerIndex.Match m : known.subMap(key, key + Character.MAX_VALUE).values()) {
+                if (out.size() >= limit) break;
+                out.putIfAbsent(identity(m), m);
+            }
+        }
+
+        List<GazetteerIndex.Match> ranked = new ArrayList<>();
+        GazetteerIndex g = gazetteer;
+        if (g != null) ranked.addAll(g.prefix(key, limit));
+        if (remote != null) ranked.addAll(remote);
+        ranked.sort((a, b) -> Integer.compare(b.population, a.population));
+        for (GazetteerIndex.Match m : ranked) {
+            if (out.size() >= limit) break;
+            String id = identity(m);
+            GazetteerIndex.Match seen = out.get(id);
+            if (seen == null) {
+                out.put(id, m);
+            } else if (seen.countryCode.isEmpty()) {
+                out.put(id, m); // same place, but this one knows its country
+            }
+        }
+        return new ArrayList<>(out.values());
+    }
+
+    private static String identity(GazetteerIndex.Match m) {
+        return GazetteerIndex.fold(m.location.name) + '\0' + cell(m.location);
+    }
+
+    /** Coordinates rounded to 0.1° (≈ 11 km), so sources that differ slightly agree. */
+    private static String cell(GeoLocation loc) {
+        return String.format(Locale.ROOT, "%.1f,%.1f", loc.latitude, loc.longitude);
+    }
+}
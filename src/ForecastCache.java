@@ -0,0 +1,251 @@
+// src/ForecastCache.java
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of parsed forecast responses keyed on (lat, lon, requested variables).
+ *
+ *   • Open‑Meteo refreshes current/hourly data every 15 minutes, so an entry
+ *     expires at the next multiple of {@code updateIntervalMillis} (wall clock),
+ *     not a fixed time after it was stored.
+ *   • Single‑flight: concurrent misses for the same key share one in‑flight
+ *     load instead of each calling the API. If the loading caller is
+ *     interrupted or cancelled, the others retry the load instead of
+ *     failing with that caller's cancellation.
+ *   • LRU eviction once {@code maxEntries} is reached. Expired entries stay
+ *     until evicted so {@link #getStale(String)} can still serve them.
+ *   • Entries are also indexed by location in a {@link GeoGrid}, so
+ *     {@link #nearest} can answer "closest fresh forecast within X km"
+ *     without a request.
+ *
+ * Null results (e.g. a non‑200 response) are passed back to every waiter
+ * but are never cached. Cached {@link WeatherData} instances are shared
+ * between callers and must be treated as read‑only.
+ */
+public class ForecastCache {
+    /** Open‑Meteo model update interval for current/hourly data. */
+    public static final long DEFAULT_UPDATE_INTERVAL_MILLIS = 15 * 60 * 1000L;
+    /** Cell size of the location index (≈ 28 km); only affects lookup cost. */
+    private static final double INDEX_CELL_DEGREES = 0.25;
+
+    /** Loads a forecast on a cache miss. */
+    public interface Loader {
+        WeatherData load() throws Exception;
+    }
+
+    private final int maxEntries;
+    private final long updateIntervalMillis;
+
+    private final LinkedHashMap<String, Entry> map;
+    /** Same entries as {@link #map}, by location; guarded by the map's lock. */
+    private final GeoGrid<Entry> locations = new GeoGrid<>(INDEX_CELL_DEGREES);
+    private final ConcurrentHashMap<String, CompletableFuture<WeatherData>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private static class Entry {
+        final String key;
+        final WeatherData data;
+        final long expiresAtMillis;
+
+        Entry(String key, WeatherData data, long expiresAtMillis) {
+            this.key = key;
+            this.data = data;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    public ForecastCache(int maxEntries) {
+        this(maxEntries, DEFAULT_UPDATE_INTERVAL_MILLIS);
+    }
+
+    public ForecastCache(int maxEntries, long updateIntervalMillis) {
+        if (maxEntries <= 0 || updateIntervalMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries and updateIntervalMillis must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        this.updateIntervalMillis = updateIntervalMillis;
+        this.map = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= ForecastCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Builds a cache key. Coordinates use the same 4‑decimal precision as the
+     * forecast URL, so two keys are equal exactly when the requests are.
+     */
+    public static String key(double lat, double lon, String variables) {
+        return String.format(Locale.ROOT, "%.4f,%.4f|%s", lat, lon, variables);
+    }
+
+    /**
+     * Returns the cached forecast for {@code key}, or runs {@code loader}
+     * (at most once across concurrent callers) and caches its result.
+     */
+    public WeatherData get(String key, Loader loader) throws Exception {
+        while (true) {
+            WeatherData cached = getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            CompletableFuture<WeatherData> mine = new CompletableFuture<>();
+            CompletableFuture<WeatherData> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                try {
+                    return await(existing);
+                } catch (CancellationException abandoned) {
+                    continue; // the leader was interrupted: load it ourselves (or join the next leader)
+                }
+            }
+
+            misses.incrementAndGet();
+            try {
+                WeatherData data = loader.load();
+                if (data != null) {
+                    put(key, data);
+                }
+                mine.complete(data);
+                return data;
+            } catch (Throwable t) {
+                if (t instanceof InterruptedException || t instanceof CancellationException
+                        || Thread.currentThread().isInterrupted()) {
+                    // Our caller gave up; that is no failure of the load for anyone else
+                    inFlight.remove(key, mine);
+                    mine.cancel(false);
+                } else {
+                    mine.completeExceptionally(t);
+                }
+                throw t;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    /** Returns a fresh cached forecast or null; does not trigger a load. */
+    public WeatherData getIfPresent(String key) {
+        synchronized (map) {
+            Entry e = map.get(key);
+            if (e == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= e.expiresAtMillis) {
+                return null; // kept (until LRU eviction) for getStale
+            }
+            hits.incrementAndGet();
+            return e.data;
+        }
+    }
+
+    /**
+     * Returns the cached forecast for {@code key} even if it has expired,
+     * or null if there is none. Used to serve something while upstream is down.
+     */
+    public WeatherData getStale(String key) {
+        synchronized (map) {
+            Entry e = map.get(key);
+            return e == null ? null : e.data;
+        }
+    }
+
+    /** Wall‑clock time at which the entry for {@code key} expires, or -1 if absent. */
+    public long getExpiryMillis(String key) {
+        synchronized (map) {
+            Entry e = map.get(key);
+            return e == null ? -1 : e.expiresAtMillis;
+        }
+    }
+
+    public void put(String key, WeatherData data) {
+        long now = System.currentTimeMillis();
+        put(key, data, (now / updateIntervalMillis + 1) * updateIntervalMillis);
+    }
+
+    /**
+     * Stores {@code data} with an explicit expiry. 0 stores it already
+     * expired, so it is only served stale (e.g. forecasts restored at startup).
+     */
+    public void put(String key, WeatherData data, long expiresAtMillis) {
+        Entry e = new Entry(key, data, expiresAtMillis);
+        synchronized (map) {
+            Entry old = map.put(key, e);
+            if (old != null) {
+                unindex(old);
+            }
+            locations.put(data.latitude, data.longitude, e);
+        }
+    }
+
+    /**
+     * The fresh cached forecast nearest to (lat, lon) within {@code maxKm}
+     * that was requested with {@code variables} (see {@link #key}), or null.
+     * Never triggers a load; a result counts as a hit.
+     */
+    public WeatherData nearest(double lat, double lon, double maxKm, String variables) {
+        String suffix = "|" + variables;
+        long now = System.currentTimeMillis();
+        synchronized (map) {
+            Entry e = locations.nearest(lat, lon, maxKm,
+                    c -> now < c.expiresAtMillis && c.key.endsWith(suffix));
+            if (e == null) {
+                return null;
+            }
+            map.get(e.key); // marks it recently used
+            hits.incrementAndGet();
+            return e.data;
+        }
+    }
+
+    public long getHitCount()       { return hits.get(); }
+    public long getMissCount()      { return misses.get(); }
+    /** Number of lookups that joined another caller's in‑flight load. */
+    public long getCoalescedCount() { return coalesced.get(); }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+            locations.clear();
+        }
+    }
+
+    private void unindex(Entry e) {
+        locations.remove(e.data.latitude, e.data.longitude, e);
+    }
+
+    private static WeatherData await(CompletableFuture<WeatherData> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// src/ForecastQuery.java
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which variables and how much time to ask the Forecast API for.
+ *
+ *   • current / hourly / daily variable lists (Open‑Meteo names, e.g. "temperature_2m")
+ *   • horizon: forecast_hours / past_hours / forecast_days / past_days
+ *     (values ≤ 0 are omitted and Open‑Meteo's defaults apply)
+ *
+ * Immutable; the {@code with…} methods return modified copies. The query
+ * string doubles as part of the forecast cache key.
+ *
+ * {@link #DEFAULT} asks for the five current values plus hourly temperature
+ * for the current hour and the next three (4 × 1‑hour slots instead of
+ * 7 × 24). {@link #HOURLY_CHART} is what WeatherApp's chart displays: the
+ * same current values plus 7 days of hourly temperature, precipitation and wind.
+ */
+public class ForecastQuery {
+    public static final ForecastQuery DEFAULT = new ForecastQuery(
+            Arrays.asList("temperature_2m", "relative_humidity_2m", "precipitation",
+                          "wind_speed_10m", "weather_code"),
+            Collections.singletonList("temperature_2m"),
+            Collections.emptyList(),
+            4, 0, 0, 0);
+
+    public static final ForecastQuery HOURLY_CHART = DEFAULT
+            .withHourly("temperature_2m", "precipitation", "wind_speed_10m")
+            .withForecastHours(0)
+            .withForecastDays(7);
+
+    public final List<String> current;
+    public final List<String> hourly;
+    public final List<String> daily;
+    public final int forecastHours;
+    public final int pastHours;
+    public final int forecastDays;
+    public final int pastDays;
+
+    private final String queryString;
+
+    public ForecastQuery(List<String> current, List<String> hourly, List<String> daily,
+                         int forecastHours, int pastHours, int forecastDays, int pastDays) {
+        this.current = Collections.unmodifiableList(current);
+        this.hourly = Collections.unmodifiableList(hourly);
+        this.daily = Collections.unmodifiableList(daily);
+        this.forecastHours = forecastHours;
+        this.pastHours = pastHours;
+        this.forecastDays = forecastDays;
+        this.pastDays = pastDays;
+        this.queryString = buildQueryString();
+    }
+
+    public ForecastQuery withCurrent(String... vars) {
+        return new ForecastQuery(Arrays.asList(vars), hourly, daily,
+                forecastHours, pastHours, forecastDays, pastDays);
+    }
+
+    public ForecastQuery withHourly(String... vars) {
+        return new ForecastQuery(current, Arrays.asList(vars), daily,
+                forecastHours, pastHours, forecastDays, pastDays);
+    }
+
+    public ForecastQuery withDaily(String... vars) {
+        return new ForecastQuery(current, hourly, Arrays.asList(vars),
+                forecastHours, pastHours, forecastDays, pastDays);
+    }
+
+    /** Hourly horizon in hours, starting at the current hour (≤ 0 = API default). */
+    public ForecastQuery withForecastHours(int hours) {
+        return new ForecastQuery(current, hourly, daily, hours, pastHours, forecastDays, pastDays);
+    }
+
+    public ForecastQuery withPastHours(int hours) {
+        return new ForecastQuery(current, hourly, daily, forecastHours, hours, forecastDays, pastDays);
+    }
+
+    public ForecastQuery withForecastDays(int days) {
+        return new ForecastQuery(current, hourly, daily, forecastHours, pastHours, days, pastDays);
+    }
+
+    public ForecastQuery withPastDays(int days) {
+        return new ForecastQuery(current, hourly, daily, forecastHours, pastHours, forecastDays, days);
+    }
+
+    /** e.g. "current=temperature_2m,…&amp;hourly=temperature_2m&amp;forecast_hours=4". */
+    public String toQueryString() {
+        return queryString;
+    }
+
+    private String buildQueryString() {
+        StringBuilder sb = new StringBuilder();
+        appendList(sb, "current", current);
+        appendList(sb, "hourly", hourly);
+        appendList(sb, "daily", daily);
+        appendInt(sb, "forecast_hours", forecastHours);
+        appendInt(sb, "past_hours", pastHours);
+        appendInt(sb, "forecast_days", forecastDays);
+        appendInt(sb, "past_days", pastDays);
+        return sb.toString();
+    }
+
+    private static void appendList(StringBuilder sb, String name, List<String> vars) {
+        if (vars.isEmpty()) return;
+        if (sb.length() > 0) sb.append('&');
+        sb.append(name).append('=').append(String.join(",", vars));
+    }
+
+    private static void appendInt(StringBuilder sb, String name, int value) {
+        if (value <= 0) return;
+        if (sb.length() > 0) sb.append('&');
+        sb.append(name).append('=').append(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ForecastQuery && ((ForecastQuery) o).queryString.equals(queryString);
+    }
+
+    @Override
+    public int hashCode() {
+        return queryString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return queryString;
+    }
+}
@@ -0,0 +1,342 @@
+// src/ForecastSeries.java
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Columnar time series (hourly or daily) for one location:
+ *   • time axis  – {@code long[]} of UTC epoch seconds, ascending
+ *   • columns    – one {@code double[]} per variable (e.g. "temperature_2m"), NaN = missing
+ *   • utcOffsetSeconds – offset of the location's local clock, for display
+ *
+ * A 7‑day hourly forecast is two or three primitive arrays instead of
+ * hundreds of {@link WeatherData.ForecastEntry} objects and Strings.
+ *
+ * Instances are immutable views {@code [offset, offset+length)} over shared
+ * arrays: {@link #slice(int, int)} and {@link #sliceByTime(long, long)} never
+ * copy. The raw accessors ({@link #timeArray()}, {@link #columnArray(int)})
+ * expose the backing arrays for tight loops — index them from
+ * {@link #arrayOffset()} and never write to them.
+ */
+public final class ForecastSeries {
+    private final long[] times;
+    private final String[] names;
+    private final double[][] columns;
+    private final int offset;
+    private final int length;
+    public final int utcOffsetSeconds;
+
+    ForecastSeries(long[] times, String[] names, double[][] columns,
+                   int offset, int length, int utcOffsetSeconds) {
+        this.times = times;
+        this.names = names;
+        this.columns = columns;
+        this.offset = offset;
+        this.length = length;
+        this.utcOffsetSeconds = utcOffsetSeconds;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    /** UTC epoch seconds of entry {@code i} (0‑based within this view). */
+    public long epochSecond(int i) {
+        return times[offset + checkIndex(i)];
+    }
+
+    /** Local wall‑clock time of entry {@code i}, "yyyy-MM-ddTHH:mm" like the API returns. */
+    public String localTime(int i) {
+        return formatLocalMinutes(Math.floorDiv(epochSecond(i) + utcOffsetSeconds, 60L));
+    }
+
+    public List<String> variables() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /** Column index of a variable, or -1 if it wasn't requested. */
+    public int columnIndex(String variable) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(variable)) return c;
+        }
+        return -1;
+    }
+
+    public double value(int column, int i) {
+        return columns[column][offset + checkIndex(i)];
+    }
+
+    /** Value of {@code variable} at entry {@code i}, NaN if the variable is absent. */
+    public double value(String variable, int i) {
+        int c = columnIndex(variable);
+        return c < 0 ? Double.NaN : value(c, i);
+    }
+
+    // ----------------------------------------------------------- zero‑copy
+
+    /** Backing time array (read‑only!); valid range is [arrayOffset(), arrayOffset()+size()). */
+    public long[] timeArray() {
+        return times;
+    }
+
+    /** Backing column array (read‑only!); same index range as {@link #timeArray()}. */
+    public double[] columnArray(int column) {
+        return columns[column];
+    }
+
+    public int arrayOffset() {
+        return offset;
+    }
+
+    /** View of entries {@code [from, to)} sharing this series' arrays. */
+    public ForecastSeries slice(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("slice [" + from + ", " + to + ") of " + length);
+        }
+        return new ForecastSeries(times, names, columns, offset + from, to - from, utcOffsetSeconds);
+    }
+
+    /** View of entries with {@code fromEpoch <= time < toEpoch}. */
+    public ForecastSeries sliceByTime(long fromEpochSecond, long toEpochSecond) {
+        return slice(lowerBound(fromEpochSecond), lowerBound(toEpochSecond));
+    }
+
+    /**
+     * Index of the entry whose interval contains {@code epochSecond}
+     * (the last entry with time &lt;= epochSecond), or -1 if it is before the series.
+     * Uniformly spaced series (the normal case) are resolved in O(1).
+     */
+    public int indexAt(long epochSecond) {
+        if (length == 0 || epochSecond < times[offset]) return -1;
+        if (length > 1) {
+            long step = times[offset + 1] - times[offset];
+            if (step > 0) {
+                long guess = (epochSecond - times[offset]) / step;
+                if (guess < length
+                        && times[offset + (int) guess] <= epochSecond
+                        && (guess + 1 == length || times[offset + (int) guess + 1] > epochSecond)) {
+                    return (int) guess;
+                }
+            }
+        }
+        return lowerBound(epochSecond + 1) - 1;
+    }
+
+    /** A {@link WeatherData.ForecastEntry} for entry {@code i} (temperature_2m column). */
+    public WeatherData.ForecastEntry entry(int i) {
+        return new WeatherData.ForecastEntry(localTime(i), value("temperature_2m", i));
+    }
+
+    /** First index (within this view) whose time is &gt;= {@code epochSecond}. */
+    private int lowerBound(long epochSecond) {
+        int lo = offset;
+        int hi = offset + length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < epochSecond) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - offset;
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("index " + i + " of " + length);
+        }
+        return i;
+    }
+
+    // ------------------------------------------------------------- builder
+
+    /**
+     * Growable builder used by the parsers. Times are collected as local
+     * epoch minutes (what the API sends) and converted to UTC in {@link #build(int)},
+     * because utc_offset_seconds may appear after the series in the JSON.
+     */
+    static final class Builder {
+        private long[] localMinutes = new long[0];
+        private int timeCount;
+        private String[] names = new String[0];
+        private double[][] columns = new double[0][];
+        private int[] counts = new int[0];
+
+        void addLocalMinutes(long minutes) {
+            if (timeCount == localMinutes.length) {
+                localMinutes = Arrays.copyOf(localMinutes, Math.max(32, timeCount * 2));
+            }
+            localMinutes[timeCount++] = minutes;
+        }
+
+        /** Starts (or restarts) the column for {@code name}; returns its index. */
+        int column(String name) {
+            for (int c = 0; c < names.length; c++) {
+                if (names[c].equals(name)) {
+                    counts[c] = 0;
+                    return c;
+                }
+            }
+            int c = names.length;
+            names = Arrays.copyOf(names, c + 1);
+            columns = Arrays.copyOf(columns, c + 1);
+            counts = Arrays.copyOf(counts, c + 1);
+            names[c] = name;
+            columns[c] = new double[Math.max(32, localMinutes.length)];
+            return c;
+        }
+
+        void addValue(int column, double v) {
+            double[] col = columns[column];
+            if (counts[column] == col.length) {
+                col = columns[column] = Arrays.copyOf(col, col.length * 2);
+            }
+            col[counts[column]++] = v;
+        }
+
+        int timeCount() {
+            return timeCount;
+        }
+
+        long localMinutes(int i) {
+            return localMinutes[i];
+        }
+
+        void clear() {
+            timeCount = 0;
+            names = new String[0];
+            columns = new double[0][];
+            counts = new int[0];
+        }
+
+        /** Trims to exact size; columns shorter than the time axis are NaN‑padded. */
+        ForecastSeries build(int utcOffsetSeconds) {
+            long[] t = new long[timeCount];
+            for (int i = 0; i < timeCount; i++) {
+                t[i] = localMinutes[i] * 60L - utcOffsetSeconds;
+            }
+            double[][] cols = new double[names.length][];
+            for (int c = 0; c < names.length; c++) {
+                cols[c] = Arrays.copyOf(columns[c], timeCount);
+                if (counts[c] < timeCount) {
+                    Arrays.fill(cols[c], counts[c], timeCount, Double.NaN);
+                }
+            }
+            return new ForecastSeries(t, names.clone(), cols, 0, timeCount, utcOffsetSeconds);
+        }
+    }
+
+    // ----------------------------------------------------------- local time
+
+    /**
+     * "yyyy-MM-ddTHH:mm" or "yyyy-MM-dd" (local time) → minutes since
+     * 1970‑01‑01T00:00 on the same clock.
+     */
+    static long parseLocalMinutes(String s) {
+        int len = s.length();
+        if (len == 16 && s.charAt(4) == '-' && s.charAt(7) == '-'
+                && s.charAt(10) == 'T' && s.charAt(13) == ':') {
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 2);
+            int day = digits(s, 8, 2);
+            int hour = digits(s, 11, 2);
+            int minute = digits(s, 14, 2);
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0) {
+                return daysFromCivil(year, month, day) * 1440L + hour * 60L + minute;
+            }
+        }
+        byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+        return parseLocalMinutes(b, b.length);
+    }
+
+    static long parseLocalMinutes(byte[] b, int len) {
+        if ((len == 16 || len == 10) && b[4] == '-' && b[7] == '-') {
+            int year = digits(b, 0, 4);
+            int month = digits(b, 5, 2);
+            int day = digits(b, 8, 2);
+            int hour = 0;
+            int minute = 0;
+            if (len == 16) {
+                hour = b[10] == 'T' && b[13] == ':' ? digits(b, 11, 2) : -1;
+                minute = digits(b, 14, 2);
+            }
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0) {
+                return daysFromCivil(year, month, day) * 1440L + hour * 60L + minute;
+            }
+        }
+        // Unusual format (e.g. with seconds): take the slow path
+        String s = new String(b, 0, len, StandardCharsets.US_ASCII);
+        if (len == 10) {
+            return LocalDate.parse(s).toEpochDay() * 1440L;
+        }
+        return LocalDateTime.parse(s).toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /** Inverse of {@link #parseLocalMinutes(String)}: minutes → "yyyy-MM-ddTHH:mm". */
+    static String formatLocalMinutes(long minutes) {
+        long days = Math.floorDiv(minutes, 1440L);
+        int minOfDay = (int) Math.floorMod(minutes, 1440L);
+
+        // civil_from_days (H. Hinnant)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] c = new char[16];
+        put(c, 0, (int) year, 4);
+        c[4] = '-';
+        put(c, 5, month, 2);
+        c[7] = '-';
+        put(c, 8, day, 2);
+        c[10] = 'T';
+        put(c, 11, minOfDay / 60, 2);
+        c[13] = ':';
+        put(c, 14, minOfDay % 60, 2);
+        return new String(c);
+    }
+
+    private static long daysFromCivil(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int digits(byte[] b, int off, int n) {
+        int v = 0;
+        for (int i = off; i < off + n; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static int digits(String s, int off, int n) {
+        int v = 0;
+        for (int i = off; i < off + n; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static void put(char[] c, int off, int value, int width) {
+        for (int i = off + width - 1; i >= off; i--) {
+            c[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
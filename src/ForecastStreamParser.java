@@ -0,0 +1,574 @@
+// src/ForecastStreamParser.java
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming, field‑projecting parser for Forecast API responses.
+ *
+ * Reads UTF‑8 bytes straight from the response stream and only materializes
+ * what {@link WeatherData} needs:
+ *   • "current": time, temperature_2m, relative_humidity_2m, precipitation,
+ *     wind_speed_10m, weather_code
+ *   • "hourly" / "daily": every variable column, straight into the primitive
+ *     arrays of a {@link ForecastSeries} (times never become Strings)
+ *   • "utc_offset_seconds"
+ * Variables a {@link ForecastQuery} didn't request stay NaN (weather_code: -1).
+ * Every other key and value is skipped byte by byte without allocating.
+ *
+ * Produces the same WeatherData as the org.json path in {@link WeatherAPIClient}
+ * (numbers are correctly rounded exactly like {@code JSONObject.getDouble});
+ * JSON nulls and non‑numeric elements inside series arrays (such as daily
+ * sunrise/sunset strings) become NaN instead of failing the request.
+ * Given a {@link WeatherMetrics}, one call records its read / parse / model
+ * build split and the bytes it consumed. Not thread‑safe: use one instance per response.
+ */
+final class ForecastStreamParser {
+    private static final byte[] K_CURRENT       = ascii("current");
+    private static final byte[] K_HOURLY        = ascii("hourly");
+    private static final byte[] K_DAILY         = ascii("daily");
+    private static final byte[] K_UTC_OFFSET    = ascii("utc_offset_seconds");
+    private static final byte[] K_TIME          = ascii("time");
+    private static final byte[] K_TEMPERATURE   = ascii("temperature_2m");
+    private static final byte[] K_HUMIDITY      = ascii("relative_humidity_2m");
+    private static final byte[] K_PRECIPITATION = ascii("precipitation");
+    private static final byte[] K_WIND          = ascii("wind_speed_10m");
+    private static final byte[] K_WEATHER_CODE  = ascii("weather_code");
+
+    /** Powers of ten that are exact doubles (fast, correctly rounded number path). */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buf = new byte[8192];
+    private int pos;
+    private int limit;
+
+    // Reusable scratch for keys, short strings and slow‑path numbers
+    private byte[] scratch = new byte[64];
+    private int scratchLen;
+
+    // Per‑object results (reset between array elements)
+    private boolean hasCurrent;
+    private boolean hasHourly;
+    private boolean hasDaily;
+    private int utcOffsetSeconds;
+    private String currentTime;
+    private double temperatureC;
+    private double humidity;
+    private double precipitation;
+    private double windSpeed;
+    private int weatherCode;
+
+    private final ForecastSeries.Builder hourly = new ForecastSeries.Builder();
+    private final ForecastSeries.Builder daily = new ForecastSeries.Builder();
+
+    // Instrumentation (only when metrics != null)
+    private final WeatherMetrics metrics;
+    private final long startNanos;
+    private final long startAllocated;
+    private long readNanos;
+    private long buildNanos;
+    private long buildAllocated;
+    private long bytesRead;
+
+    private ForecastStreamParser(InputStream in, WeatherMetrics metrics) {
+        this.in = in;
+        this.metrics = metrics;
+        this.startNanos = metrics != null ? System.nanoTime() : 0;
+        this.startAllocated = metrics != null ? WeatherMetrics.threadAllocatedBytes() : -1;
+        reset();
+    }
+
+    /** Parses a single‑location response object. */
+    static WeatherData parse(InputStream in, GeoLocation loc) throws IOException {
+        return parse(in, loc, null);
+    }
+
+    static WeatherData parse(InputStream in, GeoLocation loc, WeatherMetrics metrics) throws IOException {
+        ForecastStreamParser p = new ForecastStreamParser(in, metrics);
+        p.skipWhitespace();
+        p.parseForecastObject();
+        WeatherData data = p.build(loc);
+        p.recordMetrics();
+        return data;
+    }
+
+    /**
+     * Parses a multi‑location response (a JSON array, one object per location,
+     * aligned with {@code locations}). A single object is accepted as well.
+     */
+    static List<WeatherData> parseArray(InputStream in, List<GeoLocation> locations) throws IOException {
+        return parseArray(in, locations, null);
+    }
+
+    static List<WeatherData> parseArray(InputStream in, List<GeoLocation> locations, WeatherMetrics metrics)
+            throws IOException {
+        ForecastStreamParser p = new ForecastStreamParser(in, metrics);
+        List<WeatherData> out = new ArrayList<>(locations.size());
+        p.skipWhitespace();
+        if (p.peek() != '[') {
+            p.parseForecastObject();
+            out.add(p.build(locations.get(0)));
+        } else {
+            p.expect('[');
+            p.skipWhitespace();
+            if (p.peek() == ']') {
+                p.pos++;
+            } else {
+                while (true) {
+                    p.reset();
+                    p.parseForecastObject();
+                    out.add(out.size() < locations.size() ? p.build(locations.get(out.size())) : null);
+                    if (!p.nextElement(']')) break;
+                }
+            }
+        }
+        while (out.size() < locations.size()) {
+            out.add(null);
+        }
+        p.recordMetrics();
+        return out;
+    }
+
+    /** Splits this call's wall time into read / parse / model build. */
+    private void recordMetrics() {
+        if (metrics == null) {
+            return;
+        }
+        metrics.record(WeatherMetrics.Phase.READ, readNanos);
+        metrics.record(WeatherMetrics.Phase.MODEL_BUILD, buildNanos);
+        if (startAllocated >= 0) {
+            metrics.recordAllocation(WeatherMetrics.Phase.MODEL_BUILD, buildAllocated);
+        }
+        // Parse allocation includes the model build; its time does not
+        metrics.record(WeatherMetrics.Phase.PARSE, startNanos + readNanos + buildNanos, startAllocated);
+        metrics.addBytesRead(bytesRead);
+    }
+
+    // ---------------------------------------------------------------- model
+
+    private void reset() {
+        hasCurrent = hasHourly = hasDaily = false;
+        utcOffsetSeconds = 0;
+        currentTime = null;
+        temperatureC = humidity = precipitation = windSpeed = Double.NaN;
+        weatherCode = -1;
+        hourly.clear();
+        daily.clear();
+    }
+
+    private WeatherData build(GeoLocation loc) throws IOException {
+        if (!hasCurrent) {
+            return null;
+        }
+        if (currentTime == null) {
+            throw new IOException("Forecast response is missing current.time");
+        }
+        long t0 = metrics != null ? System.nanoTime() : 0;
+        long a0 = startAllocated >= 0 ? WeatherMetrics.threadAllocatedBytes() : 0;
+        WeatherData data = new WeatherData();
+        data.cityName = loc.name;
+        data.latitude = loc.latitude;
+        data.longitude = loc.longitude;
+        data.currentTime = currentTime;
+        data.temperatureC = temperatureC;
+        data.relativeHumidityPercent = humidity;
+        data.precipitationMM = precipitation;
+        data.windSpeedKmh = windSpeed;
+        data.weatherCode = weatherCode;
+        data.utcOffsetSeconds = utcOffsetSeconds;
+        data.hourly = hasHourly ? hourly.build(utcOffsetSeconds) : null;
+        data.daily = hasDaily ? daily.build(utcOffsetSeconds) : null;
+        data.deriveShortForecast();
+        if (metrics != null) {
+            buildNanos += System.nanoTime() - t0;
+            if (startAllocated >= 0) buildAllocated += WeatherMetrics.threadAllocatedBytes() - a0;
+        }
+        return data;
+    }
+
+    // --------------------------------------------------------------- objects
+
+    private void parseForecastObject() throws IOException {
+        expect('{');
+        if (emptyContainer('}')) return;
+        do {
+            readKey();
+            expect(':');
+            if (keyIs(K_CURRENT)) {
+                parseCurrent();
+            } else if (keyIs(K_HOURLY)) {
+                hasHourly = true;
+                parseSeries(hourly);
+            } else if (keyIs(K_DAILY)) {
+                hasDaily = true;
+                parseSeries(daily);
+            } else if (keyIs(K_UTC_OFFSET)) {
+                utcOffsetSeconds = (int) readNumber();
+            } else {
+                skipValue();
+            }
+        } while (nextElement('}'));
+    }
+
+    private void parseCurrent() throws IOException {
+        skipWhitespace();
+        if (peek() == 'n') {
+            skipValue();
+            return;
+        }
+        hasCurrent = true;
+        expect('{');
+        if (emptyContainer('}')) return;
+        do {
+            readKey();
+            expect(':');
+            if (keyIs(K_TIME)) {
+                currentTime = readString();
+            } else if (keyIs(K_TEMPERATURE)) {
+                temperatureC = readNumber();
+            } else if (keyIs(K_HUMIDITY)) {
+                humidity = readNumber();
+            } else if (keyIs(K_PRECIPITATION)) {
+                precipitation = readNumber();
+            } else if (keyIs(K_WIND)) {
+                windSpeed = readNumber();
+            } else if (keyIs(K_WEATHER_CODE)) {
+                weatherCode = (int) readNumber();
+            } else {
+                skipValue();
+            }
+        } while (nextElement('}'));
+    }
+
+    /** "hourly"/"daily" object: a "time" array plus one array per variable. */
+    private void parseSeries(ForecastSeries.Builder series) throws IOException {
+        expect('{');
+        if (emptyContainer('}')) return;
+        do {
+            readKey();
+            expect(':');
+            skipWhitespace();
+            if (keyIs(K_TIME)) {
+                readTimeArray(series);
+            } else if (peek() == '[') {
+                readColumn(series, series.column(new String(scratch, 0, scratchLen, StandardCharsets.UTF_8)));
+            } else {
+                skipValue();
+            }
+        } while (nextElement('}'));
+    }
+
+    private void readTimeArray(ForecastSeries.Builder series) throws IOException {
+        expect('[');
+        if (emptyContainer(']')) return;
+        do {
+            skipWhitespace();
+            readStringIntoScratch();
+            series.addLocalMinutes(ForecastSeries.parseLocalMinutes(scratch, scratchLen));
+        } while (nextElement(']'));
+    }
+
+    private void readColumn(ForecastSeries.Builder series, int column) throws IOException {
+        expect('[');
+        if (emptyContainer(']')) return;
+        do {
+            series.addValue(column, readColumnValue());
+        } while (nextElement(']'));
+    }
+
+    /**
+     * One column element, read the way org.json's {@code optDouble(i, NaN)}
+     * does: a number, a numeric string, or NaN for null and anything else
+     * (e.g. the "06:42" strings of daily sunrise/sunset), which is skipped.
+     */
+    private double readColumnValue() throws IOException {
+        skipWhitespace();
+        int c = peek();
+        if (c == '-' || (c >= '0' && c <= '9') || c == 'n') {
+            return readNumber();
+        }
+        if (c == '"') {
+            readStringIntoScratch();
+            if (numericScratch()) {
+                try {
+                    return Double.parseDouble(new String(scratch, 0, scratchLen, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    // e.g. "1-2": org.json gives up on it too
+                }
+            }
+            return Double.NaN;
+        }
+        skipValue();
+        return Double.NaN;
+    }
+
+    /** True if {@code scratch} looks like a plain number: digit or '-' first, no letters but e/E. */
+    private boolean numericScratch() {
+        if (scratchLen == 0 || !(scratch[0] == '-' || (scratch[0] >= '0' && scratch[0] <= '9'))) {
+            return false;
+        }
+        boolean digit = false;
+        for (int i = 0; i < scratchLen; i++) {
+            byte b = scratch[i];
+            if (b >= '0' && b <= '9') {
+                digit = true;
+            } else if (b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E') {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    // --------------------------------------------------------------- tokens
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            throw new IOException("Unexpected end of JSON");
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        if (metrics != null) {
+            long t0 = System.nanoTime();
+            n = in.read(buf, 0, buf.length);
+            readNanos += System.nanoTime() - t0;
+            if (n > 0) bytesRead += n;
+        } else {
+            n = in.read(buf, 0, buf.length);
+        }
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void expect(char ch) throws IOException {
+        skipWhitespace();
+        int c = read();
+        if (c != ch) {
+            throw new IOException("Expected '" + ch + "' but found '" + (char) c + "'");
+        }
+    }
+
+    /** After an opening bracket: consumes {@code close} and returns true if the container is empty. */
+    private boolean emptyContainer(char close) throws IOException {
+        skipWhitespace();
+        if (peek() == close) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /** After a member/element: true on ',', false on {@code close}. */
+    private boolean nextElement(char close) throws IOException {
+        skipWhitespace();
+        int c = read();
+        if (c == ',') return true;
+        if (c == close) return false;
+        throw new IOException("Expected ',' or '" + close + "' but found '" + (char) c + "'");
+    }
+
+    private void readKey() throws IOException {
+        skipWhitespace();
+        readStringIntoScratch();
+    }
+
+    private boolean keyIs(byte[] key) {
+        if (scratchLen != key.length) return false;
+        for (int i = 0; i < scratchLen; i++) {
+            if (scratch[i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    private String readString() throws IOException {
+        skipWhitespace();
+        if (peek() == 'n') {
+            skipLiteral();
+            return null;
+        }
+        readStringIntoScratch();
+        return new String(scratch, 0, scratchLen, StandardCharsets.UTF_8);
+    }
+
+    /** Reads a JSON string (opening quote next) into {@code scratch}, decoding simple escapes. */
+    private void readStringIntoScratch() throws IOException {
+        if (read() != '"') {
+            throw new IOException("Expected string");
+        }
+        scratchLen = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') return;
+            if (c == '\\') {
+                int e = read();
+                switch (e) {
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'r': c = '\r'; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'u': {
+                        int cp = 0;
+                        for (int i = 0; i < 4; i++) cp = (cp << 4) | Character.digit(read(), 16);
+                        byte[] enc = String.valueOf((char) cp).getBytes(StandardCharsets.UTF_8);
+                        for (byte b : enc) appendScratch(b);
+                        continue;
+                    }
+                    default: c = e; // \" \\ \/
+                }
+            }
+            appendScratch((byte) c);
+        }
+    }
+
+    private void appendScratch(byte b) {
+        if (scratchLen == scratch.length) {
+            scratch = java.util.Arrays.copyOf(scratch, scratchLen * 2);
+        }
+        scratch[scratchLen++] = b;
+    }
+
+    /**
+     * Reads a JSON number (or null → NaN). Values with ≤ 15 significant digits
+     * and a small decimal exponent are computed exactly in one division,
+     * which is correctly rounded; anything else goes through Double.parseDouble.
+     */
+    private double readNumber() throws IOException {
+        skipWhitespace();
+        int c = peek();
+        if (c == 'n') {
+            skipLiteral();
+            return Double.NaN;
+        }
+        scratchLen = 0;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean slow = false;
+
+        if (c == '-') {
+            negative = true;
+            appendScratch((byte) read());
+        }
+        while ((c = peek()) >= '0' && c <= '9') {
+            appendScratch((byte) read());
+            if (mantissa != 0 || c != '0') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                } else {
+                    slow = true;
+                }
+            }
+        }
+        if (c == '.') {
+            appendScratch((byte) read());
+            while ((c = peek()) >= '0' && c <= '9') {
+                appendScratch((byte) read());
+                if (digits < 18) {
+                    if (mantissa != 0 || c != '0') digits++;
+                    mantissa = mantissa * 10 + (c - '0');
+                    exp10--;
+                } else {
+                    slow = true;
+                }
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            slow = true;
+            appendScratch((byte) read());
+            c = peek();
+            if (c == '+' || c == '-') appendScratch((byte) read());
+            while ((c = peek()) >= '0' && c <= '9') appendScratch((byte) read());
+        }
+        if (scratchLen == 0 || (negative && scratchLen == 1)) {
+            throw new IOException("Expected number");
+        }
+
+        if (!slow && digits <= 15 && -exp10 < POW10.length) {
+            double v = exp10 == 0 ? (double) mantissa : mantissa / POW10[-exp10];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(new String(scratch, 0, scratchLen, StandardCharsets.US_ASCII));
+    }
+
+    /** Skips any JSON value without materializing it. */
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        int c = peek();
+        if (c == '"') {
+            pos++;
+            while (true) {
+                int s = read();
+                if (s == '\\') {
+                    read();
+                } else if (s == '"') {
+                    return;
+                }
+            }
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            while (true) {
+                int s = read();
+                if (s == '"') {
+                    pos--;
+                    skipValue();
+                } else if (s == '{' || s == '[') {
+                    depth++;
+                } else if (s == '}' || s == ']') {
+                    if (--depth == 0) return;
+                }
+            }
+        } else {
+            skipLiteral();
+        }
+    }
+
+    /** Skips a number / true / false / null. */
+    private void skipLiteral() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c < 0 || c == ',' || c == '}' || c == ']'
+                    || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
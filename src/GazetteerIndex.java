@@ -0,0 +1,437 @@
+// src/GazetteerIndex.java
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Offline city gazetteer: a sorted binary index compiled from a GeoNames
+ * cities file (cities500.txt, cities15000.txt, …) and memory‑mapped, so
+ * lookups read straight from the page cache instead of the Java heap.
+ *
+ *   • Every city is indexed under its name, its ASCII name and each of its
+ *     alternate names, folded by {@link #fold(String)}: case, diacritics
+ *     and whitespace differences don't matter ("sao  PAULO" = "São Paulo").
+ *   • {@link #lookup(String)} — exact match, most populous city first
+ *     (what the Geocoding API returns for {@code count=1}).
+ *   • {@link #prefix(String, int)} — cities whose folded name starts with
+ *     a prefix, by population.
+ *   • Both are a binary search over fixed‑width records: microseconds,
+ *     no locks, safe from any thread.
+ *
+ * File layout (big endian):
+ *   header  – magic "WGZI", version, record count, string pool offset
+ *   records – {@value #RECORD_SIZE} bytes each, sorted by folded key bytes,
+ *             then by population (descending): key offset, key length,
+ *             name length, name offset, lat, lon (micro‑degrees), population,
+ *             GeoNames id, country code (2 ASCII bytes), 2 spare bytes
+ *   pool    – UTF‑8 keys and display names; equal names are stored once
+ *
+ * Compile with {@code java GazetteerIndex compile cities500.txt cities.idx},
+ * or let {@link #open(File)} compile a text file next to itself on first use.
+ */
+public final class GazetteerIndex {
+    static final int MAGIC = 0x57475A49; // "WGZI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+    /** Coordinates are stored as fixed‑point integers (≈ 0.1 m). */
+    private static final double MICRO_DEGREES = 1e6;
+
+    /** Upper bound on records examined by one prefix query before ranking. */
+    private static final int MAX_PREFIX_SCAN = 4096;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /** One matching city (from a prefix search here or from the Geocoding API). */
+    public static final class Match {
+        public final GeoLocation location;
+        /** ISO‑3166 country code, e.g. "TH"; empty if unknown. */
+        public final String countryCode;
+        public final int population;
+
+        public Match(GeoLocation location, String countryCode, int population) {
+            this.location = location;
+            this.countryCode = countryCode;
+            this.population = population;
+        }
+
+        @Override
+        public String toString() {
+            return countryCode.isEmpty() ? location.name : location.name + ", " + countryCode;
+        }
+    }
+
+    private final File file;
+    private final ByteBuffer buf;
+    private final int count;
+    private final int poolOffset;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private GazetteerIndex(File file, ByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a gazetteer index: " + file);
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("Unsupported gazetteer index version " + buf.getInt(4) + ": " + file);
+        }
+        this.count = buf.getInt(8);
+        this.poolOffset = buf.getInt(12);
+        if (count < 0 || poolOffset != HEADER_SIZE + (long) count * RECORD_SIZE || poolOffset > buf.capacity()) {
+            throw new IOException("Corrupt gazetteer index: " + file);
+        }
+    }
+
+    /**
+     * Opens a gazetteer. A compiled index (magic "WGZI") is mapped as is;
+     * any other file is read as GeoNames text and compiled to
+     * {@code <file>.idx} first, unless that index is already up to date.
+     */
+    public static GazetteerIndex open(File file) throws IOException {
+        if (isIndex(file)) {
+            return map(file);
+        }
+        File idx = new File(file.getPath() + ".idx");
+        if (!idx.isFile() || idx.lastModified() < file.lastModified()) {
+            compile(file, idx);
+        }
+        return map(idx);
+    }
+
+    /** Maps a compiled index read‑only; the file may be shared by processes. */
+    public static GazetteerIndex map(File idx) throws IOException {
+        try (FileChannel ch = FileChannel.open(idx.toPath(), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetteer index too large: " + idx);
+            }
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new GazetteerIndex(idx, mapped.order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    public File getFile()      { return file; }
+    /** Number of indexed names (a city with alternates has several). */
+    public int size()          { return count; }
+    public long getHitCount()  { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    /**
+     * Case‑ and diacritic‑insensitive search key: decomposed, accents
+     * stripped, a few letters without a decomposition spelled out
+     * (ß → ss, ø → o, ł → l …), lower case, whitespace collapsed.
+     */
+    public static String fold(String s) {
+        String d = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        StringBuilder sb = new StringBuilder(d.length());
+        for (int i = 0; i < d.length(); i++) {
+            char c = Character.toLowerCase(d.charAt(i));
+            switch (c) {
+                case 'ß': sb.append("ss"); break;
+                case 'æ': sb.append("ae"); break;
+                case 'œ': sb.append("oe"); break;
+                case 'ø': sb.append('o'); break;
+                case 'ł': sb.append('l'); break;
+                case 'đ': sb.append('d'); break;
+                case 'ð': sb.append('d'); break;
+                case 'þ': sb.append("th"); break;
+                case 'ı': sb.append('i'); break;
+                default:  sb.append(c);
+            }
+        }
+        return SPACES.matcher(sb.toString().trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /** Most populous city named {@code city}, or null if none is indexed. */
+    public GeoLocation lookup(String city) {
+        byte[] key = fold(city).getBytes(StandardCharsets.UTF_8);
+        if (key.length > 0) {
+            int i = lowerBound(key);
+            if (i < count && compare(i, key, false) == 0) {
+                hits.incrementAndGet();
+                return location(i);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Up to {@code limit} distinct cities with a name starting with
+     * {@code prefix}, most populous first. Very short prefixes rank only the
+     * first {@value #MAX_PREFIX_SCAN} names in key order.
+     */
+    public List<Match> prefix(String prefix, int limit) {
+        byte[] key = fold(prefix).getBytes(StandardCharsets.UTF_8);
+        List<Match> out = new ArrayList<>();
+        if (key.length == 0 || limit <= 0) {
+            return out;
+        }
+        // Collect record indices, one per GeoNames id (the best-ranked key wins).
+        Map<Integer, Integer> byId = new HashMap<>();
+        int start = lowerBound(key);
+        int end = Math.min(count, start + MAX_PREFIX_SCAN);
+        for (int i = start; i < end && compare(i, key, true) == 0; i++) {
+            byId.putIfAbsent(buf.getInt(recordOffset(i) + 24), i);
+        }
+        Integer[] found = byId.values().toArray(new Integer[0]);
+        Arrays.sort(found, (a, b) -> Integer.compare(population(b), population(a)));
+        for (int k = 0; k < found.length && k < limit; k++) {
+            int i = found[k];
+            out.add(new Match(location(i), countryCode(i), population(i)));
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    private static int recordOffset(int i) {
+        return HEADER_SIZE + i * RECORD_SIZE;
+    }
+
+    /** First record whose key is ≥ {@code key}. */
+    private int lowerBound(byte[] key) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, key, false) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Compares record {@code i}'s key with {@code key} as unsigned bytes
+     * (UTF‑8 byte order is code point order). With {@code prefix}, a record
+     * key that starts with {@code key} compares equal.
+     */
+    private int compare(int i, byte[] key, boolean prefix) {
+        int r = recordOffset(i);
+        int off = poolOffset + buf.getInt(r);
+        int len = buf.getShort(r + 4) & 0xFFFF;
+        int n = Math.min(len, key.length);
+        for (int j = 0; j < n; j++) {
+            int c = (buf.get(off + j) & 0xFF) - (key[j] & 0xFF);
+            if (c != 0) return c;
+        }
+        if (prefix && len >= key.length) return 0;
+        return len - key.length;
+    }
+
+    private GeoLocation location(int i) {
+        int r = recordOffset(i);
+        int nameLen = buf.getShort(r + 6) & 0xFFFF;
+        byte[] name = new byte[nameLen];
+        buf.get(poolOffset + buf.getInt(r + 8), name, 0, nameLen);
+        return new GeoLocation(new String(name, StandardCharsets.UTF_8),
+                buf.getInt(r + 12) / MICRO_DEGREES, buf.getInt(r + 16) / MICRO_DEGREES);
+    }
+
+    private int population(int i) {
+        return buf.getInt(recordOffset(i) + 20);
+    }
+
+    private String countryCode(int i) {
+        int r = recordOffset(i) + 28;
+        char a = (char) buf.get(r), b = (char) buf.get(r + 1);
+        return a == 0 ? "" : new String(new char[] {a, b});
+    }
+
+    private static boolean isIndex(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            return ch.read(head, 0) == 4 && head.getInt(0) == MAGIC;
+        }
+    }
+
+    // -------------------------------------------------------------- compiling
+
+    /** One key → city pair while compiling. */
+    private static final class Row {
+        final byte[] key;
+        final int nameOffset, nameLength;
+        final int lat, lon;
+        final int population, id;
+        final byte cc0, cc1;
+
+        Row(byte[] key, int nameOffset, int nameLength, int lat, int lon,
+            int population, int id, byte cc0, byte cc1) {
+            this.key = key;
+            this.nameOffset = nameOffset;
+            this.nameLength = nameLength;
+            this.lat = lat;
+            this.lon = lon;
+            this.population = population;
+            this.id = id;
+            this.cc0 = cc0;
+            this.cc1 = cc1;
+        }
+    }
+
+    /**
+     * Compiles a GeoNames "geoname" table (tab separated: id, name,
+     * asciiname, alternatenames, latitude, longitude, feature class,
+     * feature code, country code, cc2, admin1‑4, population, …) into
+     * {@code out}. Lines starting with '#' and malformed lines are skipped.
+     * The index is written to a temp sibling first and then moved into place.
+     *
+     * @return number of names indexed
+     */
+    public static int compile(File source, File out) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        Map<String, Integer> pooled = new HashMap<>();
+        ByteArrayPool pool = new ByteArrayPool();
+
+        try (BufferedReader r = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') continue;
+                String[] f = line.split("\t", -1);
+                if (f.length < 15) continue;
+                int id;
+                int lat, lon;
+                int population;
+                try {
+                    id = Integer.parseInt(f[0]);
+                    lat = (int) Math.round(Double.parseDouble(f[4]) * MICRO_DEGREES);
+                    lon = (int) Math.round(Double.parseDouble(f[5]) * MICRO_DEGREES);
+                    population = f[14].isEmpty() ? 0 : (int) Math.min(Integer.MAX_VALUE, Long.parseLong(f[14]));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                String name = f[1];
+                if (name.isEmpty()) continue;
+                byte cc0 = f[8].length() == 2 ? (byte) f[8].charAt(0) : 0;
+                byte cc1 = f[8].length() == 2 ? (byte) f[8].charAt(1) : 0;
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                int nameOffset = pooled.computeIfAbsent(name, n -> pool.add(nameBytes));
+
+                Set<String> keys = new LinkedHashSet<>();
+                keys.add(fold(name));
+                keys.add(fold(f[2]));
+                for (String alt : f[3].split(",")) {
+                    keys.add(fold(alt));
+                }
+                for (String k : keys) {
+                    byte[] kb = k.getBytes(StandardCharsets.UTF_8);
+                    if (kb.length == 0 || kb.length > 0xFFFF || nameBytes.length > 0xFFFF) continue;
+                    rows.add(new Row(kb, nameOffset, nameBytes.length, lat, lon, population, id, cc0, cc1));
+                }
+            }
+        }
+
+        rows.sort((a, b) -> {
+            int c = Arrays.compareUnsigned(a.key, b.key);
+            return c != 0 ? c : Integer.compare(b.population, a.population);
+        });
+
+        // Keys are appended to the pool after the names, sharing equal keys.
+        int[] keyOffsets = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            byte[] k = rows.get(i).key;
+            keyOffsets[i] = i > 0 && Arrays.equals(k, rows.get(i - 1).key) ? keyOffsets[i - 1] : pool.add(k);
+        }
+
+        long poolOffset = HEADER_SIZE + (long) rows.size() * RECORD_SIZE;
+        if (poolOffset + pool.size() > Integer.MAX_VALUE) {
+            throw new IOException("Gazetteer too large for one index file: " + source);
+        }
+        ByteBuffer head = ByteBuffer.allocate((int) poolOffset);
+        head.putInt(MAGIC).putInt(VERSION).putInt(rows.size()).putInt((int) poolOffset);
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            head.putInt(keyOffsets[i])
+                .putShort((short) row.key.length)
+                .putShort((short) row.nameLength)
+                .putInt(row.nameOffset)
+                .putInt(row.lat)
+                .putInt(row.lon)
+                .putInt(row.population)
+                .putInt(row.id)
+                .put(row.cc0).put(row.cc1)
+                .putShort((short) 0);
+        }
+
+        File parent = out.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        File tmp = new File(out.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+            os.write(head.array());
+            pool.writeTo(os);
+        }
+        Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return rows.size();
+    }
+
+    /** Growable byte array that hands out the offset of each added slice. */
+    private static final class ByteArrayPool {
+        private byte[] data = new byte[1 << 16];
+        private int size;
+
+        int add(byte[] bytes) {
+            if (size + bytes.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + bytes.length));
+            }
+            System.arraycopy(bytes, 0, data, size, bytes.length);
+            size += bytes.length;
+            return size - bytes.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            os.write(data, 0, size);
+        }
+    }
+
+    /**
+     * {@code compile <cities.txt> <cities.idx>} or
+     * {@code lookup <index-or-text> <name> [prefix-limit]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("compile")) {
+            long t0 = System.nanoTime();
+            int n = compile(new File(args[1]), new File(args[2]));
+            System.out.printf(Locale.ROOT, "%d names indexed into %s in %.1f ms%n",
+                    n, args[2], (System.nanoTime() - t0) / 1e6);
+        } else if (args.length >= 3 && args[0].equals("lookup")) {
+            GazetteerIndex index = open(new File(args[1]));
+            long t0 = System.nanoTime();
+            GeoLocation exact = index.lookup(args[2]);
+            long t1 = System.nanoTime();
+            List<Match> matches = index.prefix(args[2], args.length > 3 ? Integer.parseInt(args[3]) : 10);
+            long t2 = System.nanoTime();
+            System.out.printf(Locale.ROOT, "exact  (%.1f us): %s%n", (t1 - t0) / 1e3, exact);
+            System.out.printf(Locale.ROOT, "prefix (%.1f us): %s%n", (t2 - t1) / 1e3, matches);
+        } else {
+            System.err.println("Usage: GazetteerIndex compile <cities.txt> <cities.idx>");
+            System.err.println("       GazetteerIndex lookup <cities.idx|cities.txt> <name> [limit]");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+// src/GeoGrid.java
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A fixed‑resolution latitude/longitude grid, used two ways:
+ *
+ *   • snapping: {@link #snapLatitude}/{@link #snapLongitude} move a point to
+ *     the centre of its cell, so every place inside one cell maps to the same
+ *     coordinates (and therefore the same forecast request)
+ *   • spatial index: values put at a point are bucketed by cell, and
+ *     {@link #nearest} only visits the cells that can hold a point within
+ *     the requested distance
+ *
+ * Cells are {@code cellDegrees} high and wide; rows start at 90° S and
+ * columns at 180° W, wrapping around the antimeridian.
+ *
+ * Not thread‑safe; callers synchronize.
+ */
+public class GeoGrid<T> {
+    /** Mean Earth radius used for great‑circle distances. */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private static final class Point<T> {
+        final double latitude;
+        final double longitude;
+        final T value;
+
+        Point(double latitude, double longitude, T value) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.value = value;
+        }
+    }
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final HashMap<Long, List<Point<T>>> cells = new HashMap<>();
+    private int size;
+
+    public GeoGrid(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 90]");
+        }
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    /** Latitude of the centre of the cell containing {@code latitude}. */
+    public double snapLatitude(double latitude) {
+        return micro(Math.min(90, (row(latitude) + 0.5) * cellDegrees - 90));
+    }
+
+    /** Longitude of the centre of the cell containing {@code longitude}, in [-180, 180). */
+    public double snapLongitude(double longitude) {
+        double centre = (column(longitude) + 0.5) * cellDegrees - 180;
+        return micro(centre >= 180 ? centre - 360 : centre);
+    }
+
+    /** Identifies the cell containing a point; equal for points in the same cell. */
+    public long cell(double latitude, double longitude) {
+        return (long) row(latitude) * columns + column(longitude);
+    }
+
+    /** Adds {@code value} at a point, replacing an equal value already in that cell. */
+    public void put(double latitude, double longitude, T value) {
+        List<Point<T>> bucket = cells.computeIfAbsent(cell(latitude, longitude), c -> new ArrayList<>(2));
+        if (bucket.removeIf(p -> p.value.equals(value))) {
+            size--;
+        }
+        bucket.add(new Point<>(latitude, longitude, value));
+        size++;
+    }
+
+    /** Removes {@code value} from the cell containing the point; true if it was there. */
+    public boolean remove(double latitude, double longitude, T value) {
+        long c = cell(latitude, longitude);
+        List<Point<T>> bucket = cells.get(c);
+        if (bucket == null || !bucket.removeIf(p -> p.value.equals(value))) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            cells.remove(c);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * The value closest to the point (great‑circle distance) among those
+     * within {@code maxKm} that pass {@code filter}, or null if none does.
+     */
+    public T nearest(double latitude, double longitude, double maxKm, Predicate<? super T> filter) {
+        if (size == 0 || !(maxKm >= 0)) {
+            return null;
+        }
+        double dLat = maxKm / KM_PER_DEGREE;
+        int rowFrom = row(latitude - dLat);
+        int rowTo = row(latitude + dLat);
+        // Columns narrow towards the poles: size the window for the widest row
+        double maxAbsLat = Math.min(90, Math.abs(latitude) + dLat);
+        double cos = Math.cos(Math.toRadians(maxAbsLat));
+        int halfColumns = cos < 1e-9 ? columns : (int) Math.ceil(maxKm / (KM_PER_DEGREE * cos) / cellDegrees) + 1;
+
+        Point<T> best = null;
+        double bestKm = maxKm;
+        long window = (long) (rowTo - rowFrom + 1) * Math.min(columns, 2L * halfColumns + 1);
+        if (window > cells.size()) {
+            // Large radius: scanning every occupied cell is cheaper
+            for (List<Point<T>> bucket : cells.values()) {
+                for (Point<T> p : bucket) {
+                    double km = distanceKm(latitude, longitude, p.latitude, p.longitude);
+                    if (km <= bestKm && filter.test(p.value)) {
+                        best = p;
+                        bestKm = km;
+                    }
+                }
+            }
+            return best == null ? null : best.value;
+        }
+
+        int centre = column(longitude);
+        for (int r = rowFrom; r <= rowTo; r++) {
+            for (int dc = -halfColumns; dc <= halfColumns; dc++) {
+                int c = Math.floorMod(centre + dc, columns);
+                List<Point<T>> bucket = cells.get((long) r * columns + c);
+                if (bucket == null) continue;
+                for (Point<T> p : bucket) {
+                    double km = distanceKm(latitude, longitude, p.latitude, p.longitude);
+                    if (km <= bestKm && filter.test(p.value)) {
+                        best = p;
+                        bestKm = km;
+                    }
+                }
+            }
+        }
+        return best == null ? null : best.value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    /** Great‑circle (haversine) distance between two points in kilometres. */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double p1 = Math.toRadians(lat1);
+        double p2 = Math.toRadians(lat2);
+        double sinDLat = Math.sin((p2 - p1) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double h = sinDLat * sinDLat + Math.cos(p1) * Math.cos(p2) * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    /** Drops floating‑point noise (89.95000000000002) so snapped values print cleanly. */
+    private static double micro(double degrees) {
+        return Math.round(degrees * 1e6) / 1e6;
+    }
+
+    private int row(double latitude) {
+        int r = (int) Math.floor((latitude + 90) / cellDegrees);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+}
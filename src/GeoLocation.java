@@ -0,0 +1,26 @@
+// src/GeoLocation.java
+
+/**
+ * Result of resolving a city name through the Geocoding API:
+ *   • name      – resolved display name, e.g. "Bangkok"
+ *   • latitude, longitude
+ *
+ * Coordinates of a place never change, so instances are immutable and
+ * safe to share between threads and caches.
+ */
+public class GeoLocation {
+    public final String name;
+    public final double latitude;
+    public final double longitude;
+
+    public GeoLocation(String name, double latitude, double longitude) {
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + latitude + ", " + longitude + ")";
+    }
+}
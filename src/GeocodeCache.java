@@ -0,0 +1,189 @@
+// src/GeocodeCache.java
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded city name → {@link GeoLocation} cache placed in front of the
+ * Geocoding API.
+ *
+ *   • Keys are normalized city names (trimmed, collapsed whitespace, lower case),
+ *     so "  new  York" and "New York" share one entry.
+ *   • LRU eviction once {@code maxEntries} is reached.
+ *   • Optional TTL (0 = entries never expire; coordinates rarely do).
+ *   • Optional snapshot file: loaded in the constructor, written by {@link #save()}.
+ *     Format is one tab‑separated line per entry: key, name, lat, lon, storedAtMillis.
+ *   • Hit / miss counters for monitoring.
+ *
+ * All methods are thread‑safe.
+ */
+public class GeocodeCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final File snapshotFile;
+
+    private final LinkedHashMap<String, Entry> map;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** One cached location + the time it was stored (for TTL). */
+    private static class Entry {
+        final GeoLocation location;
+        final long storedAtMillis;
+
+        Entry(GeoLocation location, long storedAtMillis) {
+            this.location = location;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+
+    /** In‑memory cache without persistence. */
+    public GeocodeCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, null);
+    }
+
+    /**
+     * @param maxEntries   LRU capacity (must be &gt; 0)
+     * @param ttlMillis    time‑to‑live per entry, 0 = no expiry
+     * @param snapshotFile file to reload at startup and write on {@link #save()}; may be null
+     */
+    public GeocodeCache(int maxEntries, long ttlMillis, File snapshotFile) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.snapshotFile = snapshotFile;
+        this.map = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > GeocodeCache.this.maxEntries;
+            }
+        };
+        if (snapshotFile != null && snapshotFile.isFile()) {
+            load();
+        }
+    }
+
+    /** Normalizes a user‑typed city name into a cache key. */
+    public static String normalize(String city) {
+        return city.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /** Returns the cached location for {@code city}, or null (counted as a miss). */
+    public GeoLocation get(String city) {
+        String key = normalize(city);
+        synchronized (map) {
+            Entry e = map.get(key);
+            if (e != null && isExpired(e, System.currentTimeMillis())) {
+                map.remove(key);
+                e = null;
+            }
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return e.location;
+        }
+    }
+
+    /** Like {@link #get(String)} but leaves the hit/miss counters alone. */
+    public GeoLocation peek(String city) {
+        String key = normalize(city);
+        synchronized (map) {
+            Entry e = map.get(key);
+            return e == null || isExpired(e, System.currentTimeMillis()) ? null : e.location;
+        }
+    }
+
+    /** Stores the resolved location for {@code city}. */
+    public void put(String city, GeoLocation location) {
+        synchronized (map) {
+            map.put(normalize(city), new Entry(location, System.currentTimeMillis()));
+        }
+    }
+
+    public long getHitCount()  { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * Writes the current entries to the snapshot file (no‑op without one).
+     * The file is written to a temp sibling first and then moved into place,
+     * so a crash never leaves a half‑written snapshot behind.
+     */
+    public void save() throws IOException {
+        if (snapshotFile == null) return;
+
+        List<String> lines = new ArrayList<>();
+        synchronized (map) {
+            for (Map.Entry<String, Entry> me : map.entrySet()) {
+                GeoLocation loc = me.getValue().location;
+                lines.add(me.getKey() + '\t' + loc.name + '\t' + loc.latitude + '\t'
+                        + loc.longitude + '\t' + me.getValue().storedAtMillis);
+            }
+        }
+
+        File parent = snapshotFile.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (String l : lines) {
+                w.write(l);
+                w.newLine();
+            }
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Reloads the snapshot file; malformed or expired lines are skipped. */
+    private void load() {
+        long now = System.currentTimeMillis();
+        try (BufferedReader r = Files.newBufferedReader(snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] f = line.split("\t");
+                if (f.length != 5) continue;
+                try {
+                    GeoLocation loc = new GeoLocation(
+                            f[1], Double.parseDouble(f[2]), Double.parseDouble(f[3]));
+                    Entry e = new Entry(loc, Long.parseLong(f[4]));
+                    if (!isExpired(e, now)) {
+                        map.put(f[0], e);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // skip corrupt line
+                }
+            }
+        } catch (IOException e) {
+            // A missing or unreadable snapshot just means a cold cache.
+        }
+    }
+
+    private boolean isExpired(Entry e, long now) {
+        return ttlMillis > 0 && now - e.storedAtMillis > ttlMillis;
+    }
+}
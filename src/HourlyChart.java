@@ -0,0 +1,681 @@
+// src/HourlyChart.java
+
+import javax.swing.JComponent;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.Transparency;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Hourly forecast chart of {@link WeatherApp}: temperature (line),
+ * precipitation (bars) and wind speed (line) in three stacked bands over a
+ * shared time axis, with day separators and a "now" marker.
+ *
+ *   • Painted straight from the {@link ForecastSeries} columns; no per‑hour
+ *     objects are ever created.
+ *   • The screen geometry (paths, bars, ticks and their labels) is built
+ *     and rendered to an opaque raster once per size, visible window and
+ *     unit system, and kept per unit system: plain repaints and switching
+ *     °C/°F back and forth are a single blit.
+ *   • Decimated to the pixel width: lines keep at most the first, lowest,
+ *     highest and last point of each pixel column and overlapping bars are
+ *     merged, so thousands of hours draw as fast as a week.
+ *   • Neither painting nor rebuilding allocates strings or boxed values:
+ *     day labels are made when the series is set and number labels come
+ *     from static tables.
+ *
+ * Mouse: the wheel zooms around the pointer, Shift+wheel or dragging
+ * scrolls, a double‑click shows the whole horizon. EDT only.
+ */
+public class HourlyChart extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private static final long HOUR = 3600;
+    private static final long DAY = 24 * HOUR;
+    /** Narrowest window the wheel zooms in to. */
+    private static final long MIN_SPAN_SECONDS = 6 * HOUR;
+    private static final double ZOOM_PER_NOTCH = 1.25;
+
+    private static final int LEFT = 36;
+    private static final int RIGHT = 8;
+    private static final int TOP = 18;
+    private static final int BOTTOM = 6;
+    private static final int BAND_GAP = 8;
+    /** Day labels closer than this are thinned out. */
+    private static final int MIN_DAY_LABEL_PX = 56;
+
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+    private static final Color BACKDROP = new Color(0xF8F9FA);
+    private static final Color GRID = new Color(0, 0, 0, 40);
+    private static final Color TEXT = new Color(0x343A40);
+    private static final Color TEMP_COLOR = new Color(0xD9480F);
+    private static final Color RAIN_COLOR = new Color(0x1C7ED6);
+    private static final Color WIND_COLOR = new Color(0x2B8A3E);
+    private static final Color NOW_COLOR = new Color(0xC2255C);
+    private static final Stroke LINE = new BasicStroke(1.6f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL);
+    private static final Stroke THIN = new BasicStroke(1f);
+
+    private static final String[] WEEKDAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final String[] HOUR_LABELS = new String[24];
+    /** Integer labels for temperature ticks, made on first use. */
+    private static final int INT_LABEL_MIN = -300;
+    private static final String[] INT_LABELS = new String[700];
+    /** Scale maxima for the precipitation and wind bands, with their labels. */
+    private static final double[] NICE_MAX = {0.5, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+    private static final String[] NICE_MAX_LABELS = {"0.5", "1", "2", "5", "10", "20", "50", "100", "200", "500", "1000"};
+    private static final int[] TEMP_STEPS = {1, 2, 5, 10, 20, 50};
+
+    static {
+        for (int h = 0; h < 24; h++) {
+            HOUR_LABELS[h] = (h < 10 ? "0" : "") + h;
+        }
+    }
+
+    // Data: read‑only views of the series' backing arrays
+    private ForecastSeries series;
+    private long[] times;
+    private int base;
+    private int count;
+    private double[] temp;
+    private double[] rain;
+    private double[] wind;
+    private long rangeStart;
+    private long rangeEnd;
+    private long nowEpochSecond;
+    private boolean hasNow;
+    private long[] dayStarts = new long[0];
+    private String[] dayLabels = new String[0];
+    private int version;
+    private String message;
+
+    // View
+    private long viewStart;
+    private long viewSpan;
+    private boolean fahrenheit;
+
+    private final Geometry celsiusGeometry = new Geometry();
+    private final Geometry fahrenheitGeometry = new Geometry();
+
+    // Drag state
+    private int dragX;
+    private long dragViewStart;
+
+    public HourlyChart() {
+        setFont(LABEL_FONT);
+        setOpaque(true);
+        setPreferredSize(new Dimension(460, 180));
+        setMinimumSize(new Dimension(240, 120));
+        setToolTipText("Wheel: zoom · Shift+wheel or drag: scroll · Double‑click: whole forecast");
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragViewStart = viewStart;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (series == null) return;
+                long shift = Math.round((e.getX() - dragX) * (double) viewSpan / plotWidth());
+                setView(dragViewStart - shift, viewSpan);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) showAll();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (series == null) return;
+                double notches = e.getPreciseWheelRotation();
+                if (e.isShiftDown()) {
+                    setView(viewStart + Math.round(notches * viewSpan / 8), viewSpan);
+                    return;
+                }
+                // Zoom keeping the time under the pointer in place
+                double anchor = Math.max(0, Math.min(1, (e.getX() - LEFT) / (double) plotWidth()));
+                long anchorTime = viewStart + Math.round(anchor * viewSpan);
+                long span = Math.round(viewSpan * Math.pow(ZOOM_PER_NOTCH, notches));
+                setView(anchorTime - Math.round(anchor * span), span);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Shows the hourly series of {@code data} with a marker at its current
+     * time. A refresh covering the visible window keeps the zoom and scroll
+     * position; anything else shows the whole horizon.
+     */
+    public void setForecast(WeatherData data) {
+        ForecastSeries s = data == null ? null : data.hourly;
+        if (s == null || s.size() < 2 || s.columnIndex("temperature_2m") < 0) {
+            clear("No hourly forecast");
+            return;
+        }
+        boolean keepView = series != null;
+        series = s;
+        times = s.timeArray();
+        base = s.arrayOffset();
+        count = s.size();
+        temp = column(s, "temperature_2m");
+        rain = column(s, "precipitation");
+        wind = column(s, "wind_speed_10m");
+        rangeStart = times[base];
+        rangeEnd = times[base + count - 1] + (times[base + count - 1] - times[base + count - 2]);
+        hasNow = data.currentTime != null;
+        if (hasNow) {
+            nowEpochSecond = ForecastSeries.parseLocalMinutes(data.currentTime) * 60 - s.utcOffsetSeconds;
+        }
+        computeDays(s.utcOffsetSeconds);
+        message = null;
+        version++;
+        if (!keepView || viewStart < rangeStart || viewStart + viewSpan > rangeEnd) {
+            showAll();
+        }
+        repaint();
+    }
+
+    /** Removes the series; {@code message} (may be null) is shown instead. */
+    public void clear(String message) {
+        series = null;
+        times = null;
+        temp = rain = wind = null;
+        dayStarts = new long[0];
+        dayLabels = new String[0];
+        this.message = message;
+        version++;
+        repaint();
+    }
+
+    /** °F and mph instead of °C and km/h; precipitation stays in mm. */
+    public void setFahrenheit(boolean fahrenheit) {
+        if (this.fahrenheit != fahrenheit) {
+            this.fahrenheit = fahrenheit;
+            repaint();
+        }
+    }
+
+    /** Zooms out to the whole forecast. */
+    public void showAll() {
+        if (series != null) setView(rangeStart, rangeEnd - rangeStart);
+    }
+
+    // ---------------------------------------------------------------- painting
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics;
+        int w = getWidth();
+        int h = getHeight();
+        if (series == null || w <= LEFT + RIGHT || h <= TOP + BOTTOM) {
+            g.setColor(BACKDROP);
+            g.fillRect(0, 0, w, h);
+            if (message != null) {
+                g.setFont(LABEL_FONT);
+                FontMetrics fm = g.getFontMetrics();
+                g.setColor(TEXT);
+                g.drawString(message, (w - fm.stringWidth(message)) / 2, (h + fm.getAscent()) / 2);
+            }
+            return;
+        }
+        AffineTransform tx = g.getTransform();
+        int deviceWidth = (int) Math.ceil(w * tx.getScaleX());
+        int deviceHeight = (int) Math.ceil(h * tx.getScaleY());
+        Geometry geo = fahrenheit ? fahrenheitGeometry : celsiusGeometry;
+        if (!geo.matches(w, h, deviceWidth, deviceHeight, viewStart, viewSpan, version)) {
+            Graphics2D rg = geo.raster(getGraphicsConfiguration(), deviceWidth, deviceHeight);
+            try {
+                rg.scale(deviceWidth / (double) w, deviceHeight / (double) h);
+                rg.setFont(LABEL_FONT);
+                rg.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                        g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING));
+                build(geo, w, h, rg.getFontMetrics());
+                render(geo, rg, w, h);
+            } finally {
+                rg.dispose();
+            }
+            geo.setKey(w, h, deviceWidth, deviceHeight, viewStart, viewSpan, version);
+        }
+        // device size == raster size, so this is a copy, not a rescale
+        g.drawImage(geo.raster, 0, 0, w, h, null);
+    }
+
+    /** Draws {@code geo} on {@code g} (logical coordinates, w × h). */
+    private void render(Geometry geo, Graphics2D g, int w, int h) {
+        FontMetrics fm = g.getFontMetrics();
+        int plotRight = w - RIGHT;
+        g.setColor(BACKDROP);
+        g.fillRect(0, 0, w, h);
+
+        // Grid: temperature ticks, day separators, hour ticks
+        g.setStroke(THIN);
+        g.setColor(GRID);
+        for (int i = 0; i < geo.ticks.n; i++) {
+            g.drawLine(LEFT, geo.ticks.y[i], plotRight, geo.ticks.y[i]);
+        }
+        for (int i = 0; i < geo.days.n; i++) {
+            g.drawLine(geo.days.x[i], TOP - 4, geo.days.x[i], h - BOTTOM);
+        }
+        g.setColor(TEXT);
+        for (int i = 0; i < geo.days.n; i++) {
+            g.drawString(geo.days.text[i], geo.days.x[i] + 3, geo.days.y[i]);
+        }
+        for (int i = 0; i < geo.hours.n; i++) {
+            g.drawString(geo.hours.text[i], geo.hours.x[i], geo.hours.y[i]);
+        }
+        for (int i = 0; i < geo.ticks.n; i++) {
+            g.drawString(geo.ticks.text[i], geo.ticks.x[i], geo.ticks.y[i] + fm.getAscent() / 2 - 1);
+        }
+        if (geo.rainScale != null) {
+            g.drawString(geo.rainScale, LEFT - 4 - fm.stringWidth(geo.rainScale), geo.rainTop + fm.getAscent());
+        }
+        if (geo.windScale != null) {
+            g.drawString(geo.windScale, LEFT - 4 - fm.stringWidth(geo.windScale), geo.windTop + fm.getAscent());
+        }
+
+        // Bars and lines, clipped to the plot area
+        g.clipRect(LEFT, 0, plotRight - LEFT, h);
+        g.setColor(RAIN_COLOR);
+        for (int i = 0; i < geo.barCount; i++) {
+            g.fillRect(geo.barX0[i], geo.barTop[i], geo.barX1[i] - geo.barX0[i], geo.rainBottom - geo.barTop[i]);
+        }
+        if (!geo.dense) {
+            // Antialiased strokes cost ~10x plain ones per vertex; decimated lines don't need them
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(LINE);
+        }
+        g.setColor(WIND_COLOR);
+        g.draw(geo.windPath);
+        g.setColor(TEMP_COLOR);
+        g.draw(geo.tempPath);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_DEFAULT);
+        g.setStroke(THIN);
+        if (geo.nowX >= LEFT) {
+            g.setColor(NOW_COLOR);
+            g.drawLine(geo.nowX, TOP - 4, geo.nowX, h - BOTTOM);
+        }
+        g.setClip(null);
+
+        // Units in the left margin: temperature above its ticks, the others under their scale
+        String unit = fahrenheit ? "°F" : "°C";
+        g.setColor(TEMP_COLOR);
+        g.drawString(unit, LEFT - 4 - fm.stringWidth(unit), fm.getAscent() + 1);
+        if (geo.rainScale != null) {
+            g.setColor(RAIN_COLOR);
+            g.drawString("mm", LEFT - 4 - fm.stringWidth("mm"), geo.rainTop + fm.getAscent() + fm.getHeight());
+        }
+        if (geo.windScale != null) {
+            unit = fahrenheit ? "mph" : "km/h";
+            g.setColor(WIND_COLOR);
+            g.drawString(unit, LEFT - 4 - fm.stringWidth(unit), geo.windTop + fm.getAscent() + fm.getHeight());
+        }
+    }
+
+    // ---------------------------------------------------------------- geometry
+
+    /** Growable label list: positions plus (shared, pre‑made) strings. */
+    private static final class Labels {
+        int[] x = new int[16];
+        int[] y = new int[16];
+        String[] text = new String[16];
+        int n;
+
+        void add(int px, int py, String s) {
+            if (n == x.length) {
+                x = Arrays.copyOf(x, n * 2);
+                y = Arrays.copyOf(y, n * 2);
+                text = Arrays.copyOf(text, n * 2);
+            }
+            x[n] = px;
+            y[n] = py;
+            text[n++] = s;
+        }
+    }
+
+    /**
+     * Everything painted for one unit system, and the raster it was rendered
+     * to; valid for the size, view and series version it was built for.
+     */
+    private static final class Geometry {
+        int width = -1;
+        int height;
+        int deviceWidth;
+        int deviceHeight;
+        long viewStart;
+        long viewSpan;
+        int version = -1;
+        BufferedImage raster;
+        /** More points than pixels: lines are decimated and drawn without antialiasing. */
+        boolean dense;
+
+        final Path2D.Float tempPath = new Path2D.Float(Path2D.WIND_NON_ZERO, 1024);
+        final Path2D.Float windPath = new Path2D.Float(Path2D.WIND_NON_ZERO, 1024);
+        int[] barX0 = new int[256];
+        int[] barX1 = new int[256];
+        int[] barTop = new int[256];
+        int barCount;
+
+        int tempTop;
+        int rainTop;
+        int rainBottom;
+        int windTop;
+        String rainScale;
+        String windScale;
+        final Labels ticks = new Labels();
+        final Labels days = new Labels();
+        final Labels hours = new Labels();
+        int nowX;
+
+        boolean matches(int w, int h, int dw, int dh, long start, long span, int v) {
+            return width == w && height == h && deviceWidth == dw && deviceHeight == dh
+                && viewStart == start && viewSpan == span && version == v;
+        }
+
+        void setKey(int w, int h, int dw, int dh, long start, long span, int v) {
+            width = w;
+            height = h;
+            deviceWidth = dw;
+            deviceHeight = dh;
+            viewStart = start;
+            viewSpan = span;
+            version = v;
+        }
+
+        /** Graphics on the raster, (re)allocated only when the device size changes. */
+        Graphics2D raster(GraphicsConfiguration gc, int dw, int dh) {
+            if (raster == null || raster.getWidth() != dw || raster.getHeight() != dh) {
+                raster = gc != null
+                        ? gc.createCompatibleImage(dw, dh, Transparency.OPAQUE)
+                        : new BufferedImage(dw, dh, BufferedImage.TYPE_INT_RGB);
+            }
+            return raster.createGraphics();
+        }
+
+        void addBar(int x0, int x1, int top) {
+            if (barCount > 0 && x0 < barX1[barCount - 1]) {
+                // Overlaps the previous bar at this zoom: merge, keeping the taller
+                barX1[barCount - 1] = Math.max(barX1[barCount - 1], x1);
+                barTop[barCount - 1] = Math.min(barTop[barCount - 1], top);
+                return;
+            }
+            if (barCount == barX0.length) {
+                barX0 = Arrays.copyOf(barX0, barCount * 2);
+                barX1 = Arrays.copyOf(barX1, barCount * 2);
+                barTop = Arrays.copyOf(barTop, barCount * 2);
+            }
+            barX0[barCount] = x0;
+            barX1[barCount] = x1;
+            barTop[barCount++] = top;
+        }
+    }
+
+    private void build(Geometry geo, int w, int h, FontMetrics fm) {
+        geo.tempPath.reset();
+        geo.windPath.reset();
+        geo.barCount = 0;
+        geo.ticks.n = geo.days.n = geo.hours.n = 0;
+        geo.rainScale = geo.windScale = null;
+        geo.nowX = -1;
+
+        int plotRight = w - RIGHT;
+        double pxPerSecond = (plotRight - LEFT) / (double) viewSpan;
+        int from = Math.max(0, series.indexAt(viewStart));
+        int to = Math.min(count - 1, series.indexAt(viewStart + viewSpan) + 1);
+        geo.dense = to - from + 1 > plotRight - LEFT;
+
+        // Bands share the height 5 : 2 : 3; a missing series gives up its share
+        int rainWeight = rain != null ? 2 : 0;
+        int windWeight = wind != null ? 3 : 0;
+        int gaps = (rainWeight > 0 ? 1 : 0) + (windWeight > 0 ? 1 : 0);
+        int usable = Math.max(0, h - TOP - BOTTOM - gaps * BAND_GAP);
+        int weights = 5 + rainWeight + windWeight;
+        geo.tempTop = TOP;
+        int tempBottom = TOP + usable * 5 / weights;
+        geo.rainTop = tempBottom + BAND_GAP;
+        geo.rainBottom = rainWeight > 0 ? geo.rainTop + usable * rainWeight / weights : tempBottom;
+        geo.windTop = (rainWeight > 0 ? geo.rainBottom : tempBottom) + BAND_GAP;
+        int windBottom = h - BOTTOM;
+
+        // Temperature: auto‑scaled to the visible values, integer ticks
+        double scale = fahrenheit ? 9.0 / 5.0 : 1;
+        double shift = fahrenheit ? 32 : 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i <= to; i++) {
+            double v = temp[base + i];
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        if (min <= max) {
+            min = min * scale + shift;
+            max = max * scale + shift;
+            int step = TEMP_STEPS[TEMP_STEPS.length - 1];
+            for (int s : TEMP_STEPS) {
+                if (Math.ceil(max / s) - Math.floor(min / s) <= 4) {
+                    step = s;
+                    break;
+                }
+            }
+            double lo = Math.floor(min / step) * step;
+            double hi = Math.max(lo + step, Math.ceil(max / step) * step);
+            for (double t = lo; t <= hi; t += step) {
+                String label = intLabel((int) t);
+                int y = (int) Math.round(tempBottom - (t - lo) / (hi - lo) * (tempBottom - TOP));
+                geo.ticks.add(LEFT - 4 - fm.stringWidth(label), y, label);
+            }
+            line(geo.tempPath, temp, from, to, scale, shift, lo, hi, TOP, tempBottom, pxPerSecond);
+        }
+
+        // Precipitation: bars from the band's bottom, scale 0..nice max
+        if (rain != null) {
+            int nice = niceMax(rain, from, to, 1);
+            geo.rainScale = NICE_MAX_LABELS[nice];
+            double yPerMm = (geo.rainBottom - geo.rainTop) / NICE_MAX[nice];
+            for (int i = from; i <= to; i++) {
+                double v = rain[base + i];
+                if (!(v > 0)) continue;
+                long t = times[base + i];
+                long end = i + 1 < count ? times[base + i + 1] : rangeEnd;
+                int x0 = Math.max(LEFT, xOf(t, pxPerSecond));
+                int x1 = Math.min(plotRight, xOf(end, pxPerSecond));
+                if (x1 - x0 >= 4) x1--; // keep wide bars apart
+                if (x1 <= x0) x1 = x0 + 1;
+                int top = (int) Math.round(geo.rainBottom - Math.min(v, NICE_MAX[nice]) * yPerMm);
+                geo.addBar(x0, x1, Math.min(top, geo.rainBottom - 1));
+            }
+        }
+
+        // Wind: line, scale 0..nice max
+        if (wind != null) {
+            double windScale = fahrenheit ? 0.621371 : 1;
+            int nice = niceMax(wind, from, to, windScale);
+            geo.windScale = NICE_MAX_LABELS[nice];
+            line(geo.windPath, wind, from, to, windScale, 0, 0, NICE_MAX[nice], geo.windTop, windBottom, pxPerSecond);
+        }
+
+        // Time axis: day separators (thinned when zoomed out) and hour labels when zoomed in
+        int ascent = fm.getAscent();
+        double pxPerDay = DAY * pxPerSecond;
+        int stride = Math.max(1, (int) Math.ceil(MIN_DAY_LABEL_PX / pxPerDay));
+        int d = Arrays.binarySearch(dayStarts, viewStart);
+        int first = d >= 0 ? d : -d - 1;
+        for (int i = first; i < dayStarts.length && dayStarts[i] < viewStart + viewSpan; i++) {
+            if (i % stride == 0) geo.days.add(xOf(dayStarts[i], pxPerSecond), ascent + 1, dayLabels[i]);
+        }
+        if (first > 0 && (geo.days.n == 0 || geo.days.x[0] - LEFT >= MIN_DAY_LABEL_PX)) {
+            // Zoomed into a day: label it at the left edge too
+            geo.days.add(LEFT, ascent + 1, dayLabels[first - 1]);
+        }
+        double pxPerHour = HOUR * pxPerSecond;
+        if (pxPerHour * 6 >= 36) {
+            long hourStep = pxPerHour >= 30 ? HOUR : pxPerHour * 3 >= 30 ? 3 * HOUR : 6 * HOUR;
+            // Hours right after midnight would run into the day label
+            int firstHour = (int) Math.ceil((fm.stringWidth("Wed 30") + 10) / pxPerHour);
+            int offset = series.utcOffsetSeconds;
+            long t = Math.floorDiv(viewStart + offset + hourStep - 1, hourStep) * hourStep - offset;
+            for (; t < viewStart + viewSpan; t += hourStep) {
+                int hour = (int) (Math.floorMod(t + offset, DAY) / HOUR);
+                if (hour >= firstHour) {
+                    String label = HOUR_LABELS[hour];
+                    geo.hours.add(xOf(t, pxPerSecond) - fm.stringWidth(label) / 2, ascent + 1, label);
+                }
+            }
+        }
+        if (hasNow && nowEpochSecond >= viewStart && nowEpochSecond < viewStart + viewSpan) {
+            geo.nowX = xOf(nowEpochSecond, pxPerSecond);
+        }
+    }
+
+    /**
+     * Appends {@code col[from..to]} (converted by {@code v * scale + shift})
+     * to {@code path}, keeping per pixel column only the first, lowest,
+     * highest and last point. Missing values (NaN) break the line.
+     */
+    private void line(Path2D.Float path, double[] col, int from, int to, double scale, double shift,
+                      double lo, double hi, int top, int bottom, double pxPerSecond) {
+        double yPerUnit = (bottom - top) / (hi - lo);
+        boolean penDown = false;
+        int column = Integer.MIN_VALUE;
+        int points = 0;
+        float x = 0;
+        float firstY = 0;
+        float lastY = 0;
+        float highY = 0;
+        float lowY = 0;
+        int highAt = 0;
+        int lowAt = 0;
+        for (int i = from; i <= to; i++) {
+            double v = col[base + i];
+            if (Double.isNaN(v)) {
+                if (points > 0) flush(path, penDown, column, points, x, firstY, highY, highAt, lowY, lowAt, lastY);
+                points = 0;
+                penDown = false;
+                continue;
+            }
+            float px = (float) (LEFT + (times[base + i] - viewStart) * pxPerSecond);
+            float py = (float) (bottom - (v * scale + shift - lo) * yPerUnit);
+            int c = (int) Math.floor(px);
+            if (points > 0 && c == column) {
+                if (py < highY) { highY = py; highAt = i; }
+                if (py > lowY) { lowY = py; lowAt = i; }
+                lastY = py;
+                points++;
+                continue;
+            }
+            if (points > 0) {
+                flush(path, penDown, column, points, x, firstY, highY, highAt, lowY, lowAt, lastY);
+                penDown = true;
+            }
+            column = c;
+            points = 1;
+            x = px;
+            firstY = lastY = highY = lowY = py;
+            highAt = lowAt = i;
+        }
+        if (points > 0) flush(path, penDown, column, points, x, firstY, highY, highAt, lowY, lowAt, lastY);
+    }
+
+    /** Emits one pixel column: the exact point if it has one, else first/extremes/last. */
+    private static void flush(Path2D.Float path, boolean penDown, int column, int points, float x,
+                              float firstY, float highY, int highAt, float lowY, int lowAt, float lastY) {
+        if (points == 1) {
+            to(path, penDown, x, firstY);
+            return;
+        }
+        float cx = column + 0.5f;
+        to(path, penDown, cx, firstY);
+        if (highAt < lowAt) {
+            path.lineTo(cx, highY);
+            path.lineTo(cx, lowY);
+        } else {
+            path.lineTo(cx, lowY);
+            path.lineTo(cx, highY);
+        }
+        path.lineTo(cx, lastY);
+    }
+
+    private static void to(Path2D.Float path, boolean penDown, float x, float y) {
+        if (penDown) path.lineTo(x, y);
+        else path.moveTo(x, y);
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    private void setView(long start, long span) {
+        long full = rangeEnd - rangeStart;
+        span = Math.max(Math.min(MIN_SPAN_SECONDS, full), Math.min(span, full));
+        start = Math.max(rangeStart, Math.min(start, rangeEnd - span));
+        if (start != viewStart || span != viewSpan) {
+            viewStart = start;
+            viewSpan = span;
+            repaint();
+        }
+    }
+
+    private int plotWidth() {
+        return Math.max(1, getWidth() - LEFT - RIGHT);
+    }
+
+    private int xOf(long epochSecond, double pxPerSecond) {
+        return LEFT + (int) Math.round((epochSecond - viewStart) * pxPerSecond);
+    }
+
+    /** Index into {@link #NICE_MAX} of the smallest scale holding the visible maximum. */
+    private int niceMax(double[] col, int from, int to, double scale) {
+        double max = 0;
+        for (int i = from; i <= to; i++) {
+            double v = col[base + i];
+            if (v > max) max = v;
+        }
+        max *= scale;
+        int n = 0;
+        while (n < NICE_MAX.length - 1 && NICE_MAX[n] < max) n++;
+        return n;
+    }
+
+    /** Local midnights within the series and their "Mon 16" labels. */
+    private void computeDays(int utcOffsetSeconds) {
+        long firstDay = Math.floorDiv(rangeStart + utcOffsetSeconds, DAY);
+        long lastDay = Math.floorDiv(rangeEnd - 1 + utcOffsetSeconds, DAY);
+        int n = (int) (lastDay - firstDay) + 1;
+        dayStarts = new long[n];
+        dayLabels = new String[n];
+        for (int i = 0; i < n; i++) {
+            long day = firstDay + i;
+            dayStarts[i] = day * DAY - utcOffsetSeconds;
+            String date = ForecastSeries.formatLocalMinutes(day * 1440);
+            dayLabels[i] = WEEKDAYS[(int) Math.floorMod(day + 3, 7L)] + " " + Integer.parseInt(date.substring(8, 10));
+        }
+    }
+
+    private static double[] column(ForecastSeries s, String variable) {
+        int c = s.columnIndex(variable);
+        return c < 0 ? null : s.columnArray(c);
+    }
+
+    private static String intLabel(int v) {
+        int i = v - INT_LABEL_MIN;
+        if (i < 0 || i >= INT_LABELS.length) return Integer.toString(v);
+        String s = INT_LABELS[i];
+        if (s == null) s = INT_LABELS[i] = Integer.toString(v);
+        return s;
+    }
+}
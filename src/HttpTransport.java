@@ -0,0 +1,57 @@
+// src/HttpTransport.java
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The network layer used by {@link WeatherAPIClient}: a single GET that
+ * returns status, headers and a streaming body.
+ *
+ * The default implementation is {@link JdkHttpTransport}; tests, benchmarks
+ * and offline runs can plug in their own.
+ */
+public interface HttpTransport {
+
+    /** Performs a GET. The caller must close the returned response. */
+    Response get(String url) throws IOException, InterruptedException;
+
+    /** Status + headers + a (already decompressed) body stream. */
+    class Response implements Closeable {
+        public final int statusCode;
+        public final Map<String, List<String>> headers;
+        public final InputStream body;
+
+        public Response(int statusCode, Map<String, List<String>> headers, InputStream body) {
+            this.statusCode = statusCode;
+            this.headers = headers != null ? headers : Collections.emptyMap();
+            this.body = body;
+        }
+
+        /** First value of a header (case‑insensitive name), or null. */
+        public String header(String name) {
+            for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+                if (e.getKey() != null && e.getKey().equalsIgnoreCase(name) && !e.getValue().isEmpty()) {
+                    return e.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        /** Reads the whole body as UTF‑8 and closes the stream. */
+        public String bodyAsString() throws IOException {
+            try (InputStream in = body) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
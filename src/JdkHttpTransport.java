@@ -0,0 +1,226 @@
+// src/JdkHttpTransport.java
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link HttpTransport} built on one shared {@link HttpClient}:
+ *   • connections are pooled and kept alive between requests (no repeated TLS handshakes)
+ *   • HTTP/2 when the server supports it, HTTP/1.1 otherwise
+ *   • asks for gzip/deflate and decodes the body transparently
+ *   • connect timeout + a per‑request deadline that covers reading the body
+ *     too (HttpClient's own timeout stops at the headers), so a server that
+ *     stalls mid‑response can't hang a worker
+ *
+ * The HttpClient is built on the first request (or {@link #warmUp()}):
+ * building one loads the TLS stack, which takes hundreds of milliseconds
+ * that shouldn't sit on an application's startup path.
+ */
+public class JdkHttpTransport implements HttpTransport {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private volatile HttpClient client;
+
+    public JdkHttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    public JdkHttpTransport(Duration connectTimeout, Duration requestTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /** Builds the HttpClient now instead of on the first request. */
+    public void warmUp() {
+        client();
+    }
+
+    @Override
+    public Response get(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        HttpResponse<InputStream> resp = client().send(request,
+                info -> new DeadlineBodyStream(deadline, requestTimeout));
+
+        InputStream raw = resp.body();
+        InputStream body = raw;
+        String encoding = resp.headers().firstValue("Content-Encoding").orElse("");
+        try {
+            if (encoding.equalsIgnoreCase("gzip")) {
+                body = new GZIPInputStream(raw, 8192); // reads the header: may fail or time out
+            } else if (encoding.equalsIgnoreCase("deflate")) {
+                body = new InflaterInputStream(raw);
+            }
+        } catch (IOException e) {
+            raw.close();
+            throw e;
+        }
+        return new Response(resp.statusCode(), resp.headers().map(), body);
+    }
+
+    /**
+     * Response body as a blocking stream whose reads all end by the request
+     * deadline: the stream from BodyHandlers.ofInputStream() waits for the
+     * next chunk without limit. On timeout (or close) the exchange is
+     * cancelled, which releases the connection.
+     */
+    private static final class DeadlineBodyStream extends InputStream
+            implements HttpResponse.BodySubscriber<InputStream> {
+        /** End of body (or failure), by identity. */
+        private static final List<ByteBuffer> END = Collections.unmodifiableList(new ArrayList<>());
+
+        private final BlockingQueue<List<ByteBuffer>> chunks = new LinkedBlockingQueue<>();
+        private final long deadlineNanos;
+        private final Duration timeout;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable failure;
+        private Iterator<ByteBuffer> pending = Collections.emptyIterator();
+        private ByteBuffer current;
+        private boolean ended;
+        private volatile boolean closed;
+
+        DeadlineBodyStream(long deadlineNanos, Duration timeout) {
+            this.deadlineNanos = deadlineNanos;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public CompletionStage<InputStream> getBody() {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (closed) {
+                s.cancel();
+            } else {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            chunks.offer(item);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            failure = t;
+            chunks.offer(END);
+        }
+
+        @Override
+        public void onComplete() {
+            chunks.offer(END);
+        }
+
+        /** The buffer to read from, or null at end of body. */
+        private ByteBuffer current() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                if (closed) throw new IOException("Response body closed");
+                if (ended) return null;
+                if (pending.hasNext()) {
+                    current = pending.next();
+                    continue;
+                }
+                List<ByteBuffer> next;
+                try {
+                    next = chunks.poll(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading the response body");
+                }
+                if (next == null) {
+                    close();
+                    throw new HttpTimeoutException("Response body not received within " + timeout.toMillis() + " ms");
+                }
+                if (next == END) {
+                    ended = true;
+                    if (failure != null) throw new IOException("Response body failed", failure);
+                    return null;
+                }
+                pending = next.iterator();
+                subscription.request(1);
+            }
+            return current;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer b = current();
+            return b == null ? -1 : b.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            ByteBuffer b = current();
+            if (b == null) return -1;
+            int n = Math.min(len, b.remaining());
+            b.get(dst, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer b = current;
+            return b == null || closed ? 0 : b.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            Flow.Subscription s = subscription;
+            if (s != null) s.cancel();
+        }
+    }
+
+    private HttpClient client() {
+        HttpClient c = client;
+        if (c == null) {
+            synchronized (this) {
+                c = client;
+                if (c == null) {
+                    c = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_2)
+                            .connectTimeout(connectTimeout)
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .build();
+                    client = c;
+                }
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,498 @@
+// src/ObservationStore.java
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append‑only local history of observed current conditions, so past
+ * weather can be shown again without asking Open‑Meteo.
+ *
+ *   • Each observation is one fixed‑width {@value #RECORD_SIZE}‑byte record
+ *     (epoch time, city id, temperature, humidity, precipitation, wind,
+ *     weather code, UTC offset) appended to a segment file of
+ *     {@value #RECORDS_PER_SEGMENT} records, memory‑mapped read/write.
+ *   • City names and coordinates live once in {@code cities.tsv}; records
+ *     refer to them by id.
+ *   • Opening the store scans every segment (sequential mmap reads) to build
+ *     an in‑memory index: per city, the record positions sorted by time, and
+ *     per segment, the time range it covers. "Last 30 days for Bangkok" is a
+ *     binary search plus one record read per result.
+ *   • An observation is only appended if it is newer than the city's last
+ *     one, so repeated refreshes of the same model run are stored once.
+ *
+ * Crash safety: a record is written before the segment's count is bumped,
+ * so a torn append is simply not there on the next open. One process at a
+ * time may open a directory (guarded by a lock file). Thread‑safe.
+ *
+ * Segment layout (big endian): header (magic "WOBS", version, record size,
+ * count), then records: epochSecond (long), cityId (int), temperature,
+ * humidity, precipitation, wind (float), weather code (short), UTC offset
+ * in quarter hours (short).
+ */
+public class ObservationStore implements Closeable {
+    static final int MAGIC = 0x574F4253; // "WOBS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+    static final int RECORDS_PER_SEGMENT = 65_536;
+    private static final long SEGMENT_BYTES = HEADER_SIZE + (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+    private static final double SAME_PLACE_DEGREES = 0.01;
+
+    /** One stored observation. */
+    public static class Observation {
+        public final String city;
+        public final double latitude;
+        public final double longitude;
+        public final long epochSecond;
+        public final int utcOffsetSeconds;
+        public final double temperatureC;
+        public final double relativeHumidityPercent;
+        public final double precipitationMM;
+        public final double windSpeedKmh;
+        public final int weatherCode;
+
+        Observation(String city, double latitude, double longitude, long epochSecond, int utcOffsetSeconds,
+                    double temperatureC, double relativeHumidityPercent, double precipitationMM,
+                    double windSpeedKmh, int weatherCode) {
+            this.city = city;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.epochSecond = epochSecond;
+            this.utcOffsetSeconds = utcOffsetSeconds;
+            this.temperatureC = temperatureC;
+            this.relativeHumidityPercent = relativeHumidityPercent;
+            this.precipitationMM = precipitationMM;
+            this.windSpeedKmh = windSpeedKmh;
+            this.weatherCode = weatherCode;
+        }
+
+        /** Local time of the city, ISO "yyyy-MM-dd'T'HH:mm" like {@link WeatherData#currentTime}. */
+        public String localTime() {
+            return ForecastSeries.formatLocalMinutes(Math.floorDiv(epochSecond + utcOffsetSeconds, 60L));
+        }
+
+        /** Current conditions only; no forecast or series. */
+        public WeatherData toWeatherData() {
+            WeatherData d = new WeatherData();
+            d.cityName = city;
+            d.latitude = latitude;
+            d.longitude = longitude;
+            d.currentTime = localTime();
+            d.utcOffsetSeconds = utcOffsetSeconds;
+            d.temperatureC = temperatureC;
+            d.relativeHumidityPercent = relativeHumidityPercent;
+            d.precipitationMM = precipitationMM;
+            d.windSpeedKmh = windSpeedKmh;
+            d.weatherCode = weatherCode;
+            return d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s %.1f °C", city, localTime(), temperatureC);
+        }
+    }
+
+    /** Dictionary entry of cities.tsv. */
+    private static final class City {
+        final int id;
+        final String name;
+        final double latitude, longitude;
+
+        City(int id, String name, double latitude, double longitude) {
+            this.id = id;
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /** Record positions of one city, ascending by time. */
+    private static final class CityIndex {
+        long[] epochs = new long[16];
+        int[] refs = new int[16];
+        int size;
+
+        void add(long epoch, int ref) {
+            if (size == epochs.length) {
+                epochs = Arrays.copyOf(epochs, size * 2);
+                refs = Arrays.copyOf(refs, size * 2);
+            }
+            epochs[size] = epoch;
+            refs[size] = ref;
+            size++;
+        }
+
+        long last() {
+            return size == 0 ? Long.MIN_VALUE : epochs[size - 1];
+        }
+
+        /** First position with epoch ≥ {@code epoch}. */
+        int lowerBound(long epoch) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (epochs[mid] < epoch) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /** One mapped segment file and the time range of its records. */
+    private static final class Segment {
+        final MappedByteBuffer buf;
+        int count;
+        long minEpoch = Long.MAX_VALUE;
+        long maxEpoch = Long.MIN_VALUE;
+
+        Segment(MappedByteBuffer buf, int count) {
+            this.buf = buf;
+            this.count = count;
+        }
+    }
+
+    private final File dir;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final List<City> cities = new ArrayList<>();
+    /** Normalized name → ids of every city with that name. */
+    private final Map<String, List<Integer>> idsByName = new HashMap<>();
+    private final List<CityIndex> indexes = new ArrayList<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private BufferedWriter cityWriter;
+    private boolean closed;
+
+    /**
+     * Opens (or creates) the store in {@code dir} and indexes its segments.
+     *
+     * @throws IOException if the directory can't be used or another process has it open
+     */
+    public ObservationStore(File dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir.toPath());
+        this.lockChannel = FileChannel.open(new File(dir, "store.lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock l;
+        try {
+            l = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            l = null; // already open in this JVM
+        }
+        if (l == null) {
+            lockChannel.close();
+            throw new IOException("Observation store is in use by another process: " + dir);
+        }
+        this.lock = l;
+        try {
+            loadCities();
+            for (int i = 0; new File(dir, segmentName(i)).isFile(); i++) {
+                Segment seg = mapSegment(i);
+                segments.add(seg);
+                indexSegment(i, seg);
+            }
+            cityWriter = Files.newBufferedWriter(new File(dir, "cities.tsv").toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Appends the current conditions of {@code data}. Returns false (and
+     * stores nothing) if the city already has an observation at or after
+     * that time, or the data carries no time.
+     */
+    public synchronized boolean append(WeatherData data) throws IOException {
+        ensureOpen();
+        if (data == null || data.cityName == null || data.currentTime == null) {
+            return false;
+        }
+        long localMinutes;
+        try {
+            localMinutes = ForecastSeries.parseLocalMinutes(data.currentTime);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        long epoch = localMinutes * 60 - data.utcOffsetSeconds;
+        int cityId = cityId(data.cityName, data.latitude, data.longitude);
+        CityIndex index = indexes.get(cityId);
+        if (epoch <= index.last()) {
+            return false;
+        }
+
+        Segment seg = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (seg == null || seg.count == RECORDS_PER_SEGMENT) {
+            seg = mapSegment(segments.size());
+            segments.add(seg);
+        }
+        int slot = seg.count;
+        int r = HEADER_SIZE + slot * RECORD_SIZE;
+        seg.buf.putLong(r, epoch)
+               .putInt(r + 8, cityId)
+               .putFloat(r + 12, (float) data.temperatureC)
+               .putFloat(r + 16, (float) data.relativeHumidityPercent)
+               .putFloat(r + 20, (float) data.precipitationMM)
+               .putFloat(r + 24, (float) data.windSpeedKmh)
+               .putShort(r + 28, (short) data.weatherCode)
+               .putShort(r + 30, (short) (data.utcOffsetSeconds / 900));
+        seg.buf.putInt(12, slot + 1); // publish the record
+        seg.count = slot + 1;
+        seg.minEpoch = Math.min(seg.minEpoch, epoch);
+        seg.maxEpoch = Math.max(seg.maxEpoch, epoch);
+        index.add(epoch, (segments.size() - 1) * RECORDS_PER_SEGMENT + slot);
+        return true;
+    }
+
+    /**
+     * Observations of every city named {@code city} (case‑insensitive) with
+     * {@code fromEpoch ≤ time < toEpoch}, oldest first.
+     */
+    public synchronized List<Observation> query(String city, long fromEpoch, long toEpoch) {
+        ensureOpen();
+        List<Integer> ids = idsByName.get(GeocodeCache.normalize(city));
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Observation> out = new ArrayList<>();
+        for (int id : ids) {
+            CityIndex index = indexes.get(id);
+            for (int i = index.lowerBound(fromEpoch); i < index.size && index.epochs[i] < toEpoch; i++) {
+                out.add(read(index.refs[i]));
+            }
+        }
+        if (ids.size() > 1) {
+            out.sort((a, b) -> Long.compare(a.epochSecond, b.epochSecond));
+        }
+        return out;
+    }
+
+    /** The last {@code days} days for {@code city}, oldest first. */
+    public List<Observation> recent(String city, int days) {
+        long now = System.currentTimeMillis() / 1000;
+        return query(city, now - days * 86_400L, Long.MAX_VALUE);
+    }
+
+    /** Newest observation of {@code city}, or null. */
+    public synchronized Observation latest(String city) {
+        ensureOpen();
+        List<Integer> ids = idsByName.get(GeocodeCache.normalize(city));
+        Observation best = null;
+        for (int id : ids == null ? Collections.<Integer>emptyList() : ids) {
+            CityIndex index = indexes.get(id);
+            if (index.size > 0 && (best == null || index.last() > best.epochSecond)) {
+                best = read(index.refs[index.size - 1]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Every observation (any city) with {@code fromEpoch ≤ time < toEpoch},
+     * in storage order. Segments outside the range are skipped unread.
+     */
+    public synchronized void scan(long fromEpoch, long toEpoch, Consumer<Observation> sink) {
+        ensureOpen();
+        for (int s = 0; s < segments.size(); s++) {
+            Segment seg = segments.get(s);
+            if (seg.count == 0 || seg.maxEpoch < fromEpoch || seg.minEpoch >= toEpoch) continue;
+            for (int slot = 0; slot < seg.count; slot++) {
+                long epoch = seg.buf.getLong(HEADER_SIZE + slot * RECORD_SIZE);
+                if (epoch >= fromEpoch && epoch < toEpoch) {
+                    Observation o = read(s * RECORDS_PER_SEGMENT + slot);
+                    if (o != null) sink.accept(o);
+                }
+            }
+        }
+    }
+
+    /** Total stored observations. */
+    public synchronized long size() {
+        long n = 0;
+        for (Segment s : segments) n += s.count;
+        return n;
+    }
+
+    /** Names of every stored city, in first‑seen order. */
+    public synchronized List<String> getCities() {
+        List<String> out = new ArrayList<>(cities.size());
+        for (City c : cities) out.add(c.name);
+        return out;
+    }
+
+    /** Forces written records to disk (the OS does it eventually anyway). */
+    public synchronized void flush() throws IOException {
+        for (Segment s : segments) s.buf.force();
+        if (cityWriter != null) cityWriter.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            for (Segment s : segments) s.buf.force();
+            segments.clear();
+            if (cityWriter != null) cityWriter.close();
+        } finally {
+            if (lock != null) lock.release();
+            lockChannel.close();
+        }
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Observation store is closed");
+    }
+
+    private static String segmentName(int i) {
+        return String.format(Locale.ROOT, "obs-%06d.seg", i);
+    }
+
+    /**
+     * Maps segment {@code i} at full size, creating and formatting it if new.
+     * Mapping grows the file before the header is written, so a crash in
+     * between leaves a zero‑filled segment; one whose magic and count are
+     * still 0 holds no records and is formatted like a new one. The magic is
+     * written last, so a half‑written header reads the same way.
+     */
+    private Segment mapSegment(int i) throws IOException {
+        File f = new File(dir, segmentName(i));
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            buf.order(ByteOrder.BIG_ENDIAN);
+            if (buf.getInt(0) == 0 && buf.getInt(12) == 0) {
+                buf.putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, 0);
+                buf.putInt(0, MAGIC);
+            } else if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not an observation segment (or unsupported version): " + f);
+            }
+            int count = Math.max(0, Math.min(buf.getInt(12), RECORDS_PER_SEGMENT));
+            return new Segment(buf, count);
+        }
+    }
+
+    /** Sequential scan of one segment into the per‑city index. */
+    private void indexSegment(int s, Segment seg) {
+        for (int slot = 0; slot < seg.count; slot++) {
+            int r = HEADER_SIZE + slot * RECORD_SIZE;
+            long epoch = seg.buf.getLong(r);
+            int cityId = seg.buf.getInt(r + 8);
+            if (cityId < 0 || cityId >= indexes.size()) continue; // dictionary line lost in a crash
+            CityIndex index = indexes.get(cityId);
+            if (epoch <= index.last()) continue;
+            index.add(epoch, s * RECORDS_PER_SEGMENT + slot);
+            seg.minEpoch = Math.min(seg.minEpoch, epoch);
+            seg.maxEpoch = Math.max(seg.maxEpoch, epoch);
+        }
+    }
+
+    private Observation read(int ref) {
+        Segment seg = segments.get(ref / RECORDS_PER_SEGMENT);
+        int r = HEADER_SIZE + (ref % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        int cityId = seg.buf.getInt(r + 8);
+        if (cityId < 0 || cityId >= cities.size()) return null;
+        City c = cities.get(cityId);
+        return new Observation(c.name, c.latitude, c.longitude,
+                seg.buf.getLong(r),
+                seg.buf.getShort(r + 30) * 900,
+                seg.buf.getFloat(r + 12),
+                seg.buf.getFloat(r + 16),
+                seg.buf.getFloat(r + 20),
+                seg.buf.getFloat(r + 24),
+                seg.buf.getShort(r + 28));
+    }
+
+    /**
+     * Id of a city, adding it to the dictionary (and cities.tsv) if new.
+     * The same name within {@value #SAME_PLACE_DEGREES}° is the same city.
+     */
+    private int cityId(String name, double lat, double lon) throws IOException {
+        List<Integer> ids = idsByName.get(GeocodeCache.normalize(name));
+        for (int id : ids == null ? Collections.<Integer>emptyList() : ids) {
+            City c = cities.get(id);
+            if (Math.abs(c.latitude - lat) < SAME_PLACE_DEGREES && Math.abs(c.longitude - lon) < SAME_PLACE_DEGREES) {
+                return id;
+            }
+        }
+        City c = addCity(name, lat, lon);
+        // The dictionary line must be on disk before any record refers to it
+        cityWriter.write(c.id + "\t" + name + "\t" + lat + "\t" + lon);
+        cityWriter.newLine();
+        cityWriter.flush();
+        return c.id;
+    }
+
+    private City addCity(String name, double lat, double lon) {
+        City c = new City(cities.size(), name, lat, lon);
+        cities.add(c);
+        indexes.add(new CityIndex());
+        idsByName.computeIfAbsent(GeocodeCache.normalize(name), k -> new ArrayList<>()).add(c.id);
+        return c;
+    }
+
+    /**
+     * Loads cities.tsv. Ids are line positions, so the load stops at the first
+     * malformed (torn) line, and the file is rewritten without it so that
+     * later appends get the right ids.
+     */
+    private void loadCities() throws IOException {
+        File f = new File(dir, "cities.tsv");
+        if (!f.isFile()) return;
+        boolean torn = false;
+        try (BufferedReader r = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] p = line.split("\t");
+                try {
+                    if (p.length != 4 || Integer.parseInt(p[0]) != cities.size()) {
+                        torn = true;
+                        break;
+                    }
+                    addCity(p[1], Double.parseDouble(p[2]), Double.parseDouble(p[3]));
+                } catch (NumberFormatException e) {
+                    torn = true;
+                    break;
+                }
+            }
+        }
+        if (torn) {
+            File tmp = new File(dir, "cities.tsv.tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                for (City c : cities) {
+                    w.write(c.id + "\t" + c.name + "\t" + c.latitude + "\t" + c.longitude);
+                    w.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
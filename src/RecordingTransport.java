@@ -0,0 +1,149 @@
+// src/RecordingTransport.java
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link HttpTransport} that forwards to a real transport and appends every
+ * exchange to a compact on‑disk archive for {@link ReplayTransport}.
+ *
+ * Archive format (one gzip stream, sync‑flushed after each entry so a killed
+ * process still leaves a readable archive):
+ *   header: "WXRR" magic, version byte
+ *   entry:  boolean present (true), UTF request key (path?query), int status,
+ *           long latencyNanos, int headerCount, headerCount × (UTF name, UTF value),
+ *           int bodyLength, body bytes (decompressed)
+ *   end:    boolean false (written by {@link #close()})
+ */
+public class RecordingTransport implements HttpTransport, Closeable {
+    static final int MAGIC = 0x57585252; // "WXRR"
+    static final int VERSION = 1;
+
+    /** Recorders opened via {@link #shared}, by canonical archive path; closed by one shutdown hook. */
+    private static final Map<File, RecordingTransport> SHARED = new HashMap<>();
+    private static boolean hookInstalled;
+
+    private final HttpTransport delegate;
+    private final DataOutputStream out;
+    private boolean closed;
+
+    /**
+     * The process‑wide recorder for an archive, opened (and truncated) on
+     * first use. Every client recording to the same file must share it, as a
+     * second truncating stream would clobber the first one's entries. All
+     * shared recorders are closed by a single shutdown hook.
+     */
+    public static RecordingTransport shared(HttpTransport delegate, File archive) throws IOException {
+        File key = archive.getCanonicalFile();
+        synchronized (SHARED) {
+            RecordingTransport recorder = SHARED.get(key);
+            if (recorder == null) {
+                recorder = new RecordingTransport(delegate, key);
+                SHARED.put(key, recorder);
+                if (!hookInstalled) {
+                    hookInstalled = true;
+                    Runtime.getRuntime().addShutdownHook(new Thread(RecordingTransport::closeShared,
+                            "recording-transport-close"));
+                }
+            }
+            return recorder;
+        }
+    }
+
+    private static void closeShared() {
+        List<RecordingTransport> recorders;
+        synchronized (SHARED) {
+            recorders = new ArrayList<>(SHARED.values());
+        }
+        for (RecordingTransport recorder : recorders) {
+            try {
+                recorder.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    public RecordingTransport(HttpTransport delegate, File archive) throws IOException {
+        this.delegate = delegate;
+        this.out = new DataOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(archive)), 8192, true));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.flush();
+    }
+
+    @Override
+    public Response get(String url) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        byte[] body;
+        int status;
+        Map<String, List<String>> headers;
+        try (Response resp = delegate.get(url)) {
+            status = resp.statusCode;
+            headers = resp.headers;
+            body = resp.body.readAllBytes();
+        }
+        long latency = System.nanoTime() - start;
+
+        synchronized (this) {
+            if (!closed) {
+                out.writeBoolean(true);
+                out.writeUTF(requestKey(url));
+                out.writeInt(status);
+                out.writeLong(latency);
+                int count = 0;
+                for (Map.Entry<String, List<String>> h : headers.entrySet()) {
+                    if (h.getKey() != null && !isTransportHeader(h.getKey())) count += h.getValue().size();
+                }
+                out.writeInt(count);
+                for (Map.Entry<String, List<String>> h : headers.entrySet()) {
+                    if (h.getKey() == null || isTransportHeader(h.getKey())) continue;
+                    for (String v : h.getValue()) {
+                        out.writeUTF(h.getKey());
+                        out.writeUTF(v);
+                    }
+                }
+                out.writeInt(body.length);
+                out.write(body);
+                out.flush();
+            }
+        }
+        return new Response(status, headers, new ByteArrayInputStream(body));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.writeBoolean(false);
+        out.close();
+    }
+
+    /**
+     * Archive key of a URL: path + query without scheme/host, so an archive
+     * recorded against Open‑Meteo also replays behind a different base URL.
+     */
+    static String requestKey(String url) {
+        URI uri = URI.create(url);
+        String query = uri.getRawQuery();
+        return uri.getRawPath() + (query != null ? "?" + query : "");
+    }
+
+    /** The body is stored decompressed, so encoding/length headers don't apply on replay. */
+    private static boolean isTransportHeader(String name) {
+        return name.equalsIgnoreCase("Content-Encoding")
+            || name.equalsIgnoreCase("Content-Length")
+            || name.equalsIgnoreCase("Transfer-Encoding")
+            || name.startsWith(":");
+    }
+}
@@ -0,0 +1,269 @@
+// src/RefreshScheduler.java
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the forecasts of a set of tracked cities warm in the client's
+ * {@link ForecastCache}, so revisiting a city costs no upstream round trip.
+ *
+ *   • Refresh timing: cached forecasts expire on Open‑Meteo's 15‑minute
+ *     update boundary, and a fetch before it would only return the same
+ *     model run. Each city is therefore refreshed just after its entry
+ *     expires, plus a random jitter (default up to 60 s) so tracked
+ *     cities don't all hit upstream at the same instant.
+ *   • Batching: every tick collects the cities due within a short window and
+ *     refreshes them with one {@link WeatherAPIClient#fetchWeatherForCities}
+ *     call (one multi‑location forecast request per 50 cities).
+ *   • Stale‑while‑revalidate: {@link #getIfCached(String)} returns the cached
+ *     forecast immediately, fresh or expired; an expired one is revalidated
+ *     in the background and listeners get the new result.
+ *   • Failed refreshes back off (1, 2, 4 … up to 15 minutes).
+ *   • At most {@code maxTracked} cities are kept; the least recently used
+ *     one is dropped first.
+ */
+public class RefreshScheduler {
+    public static final int DEFAULT_MAX_TRACKED = 50;
+    public static final long DEFAULT_JITTER_MILLIS = 60_000;
+
+    private static final long TICK_MILLIS = 1_000;
+    /** Cities due within this window join the current batch. */
+    private static final long BATCH_WINDOW_MILLIS = 5_000;
+    /** Delay before a revalidation tick, so near‑simultaneous reads share one batch. */
+    private static final long REVALIDATE_DELAY_MILLIS = 50;
+    private static final long MIN_RETRY_MILLIS = 60_000;
+    private static final long MAX_RETRY_MILLIS = 15 * 60_000;
+
+    private static final class Tracked {
+        final String city;
+        long dueAtMillis;
+        boolean inFlight;
+        int failures;
+
+        Tracked(String city, long dueAtMillis) {
+            this.city = city;
+            this.dueAtMillis = dueAtMillis;
+        }
+    }
+
+    private final WeatherAPIClient client;
+    private final int maxTracked;
+    private final long jitterMillis;
+
+    private final LinkedHashMap<String, Tracked> tracked;
+    private final List<Consumer<WeatherResult>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean revalidatePending = new AtomicBoolean();
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "weather-refresh-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService workers = WeatherAPIClient.newWorkerExecutor("weather-refresh");
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+
+    public RefreshScheduler(WeatherAPIClient client) {
+        this(client, DEFAULT_MAX_TRACKED, DEFAULT_JITTER_MILLIS);
+    }
+
+    public RefreshScheduler(WeatherAPIClient client, int maxTracked, long jitterMillis) {
+        if (maxTracked <= 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("maxTracked must be > 0 and jitterMillis >= 0");
+        }
+        this.client = client;
+        this.maxTracked = maxTracked;
+        this.jitterMillis = jitterMillis;
+        this.tracked = new LinkedHashMap<String, Tracked>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tracked> eldest) {
+                return size() > RefreshScheduler.this.maxTracked;
+            }
+        };
+    }
+
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /** Called with every background refresh result (on a worker thread). */
+    public void addListener(Consumer<WeatherResult> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts keeping {@code city} warm. A city with a fresh cached forecast
+     * is next refreshed after that entry expires; otherwise right away.
+     */
+    public void track(String city) {
+        if (city == null || city.trim().isEmpty()) return;
+        String key = GeocodeCache.normalize(city);
+        long now = System.currentTimeMillis();
+        long expiry = cachedExpiry(city);
+        synchronized (tracked) {
+            if (tracked.get(key) != null) return; // get() also marks it recently used
+            tracked.put(key, new Tracked(city.trim(), expiry > now ? expiry + jitter() : now));
+        }
+        if (expiry <= now) {
+            scheduleRevalidation();
+        }
+    }
+
+    public void untrack(String city) {
+        synchronized (tracked) {
+            tracked.remove(GeocodeCache.normalize(city));
+        }
+    }
+
+    public List<String> getTrackedCities() {
+        synchronized (tracked) {
+            List<String> out = new ArrayList<>(tracked.size());
+            for (Tracked t : tracked.values()) out.add(t.city);
+            return out;
+        }
+    }
+
+    /**
+     * Never touches the network. Returns the cached forecast for
+     * {@code city}: a success if fresh, a stale result (kind null) if expired,
+     * in which case a background revalidation is queued; or null if nothing is
+     * cached. The city is tracked from then on either way.
+     */
+    public WeatherResult getIfCached(String city) {
+        String key = forecastKey(city);
+        WeatherData fresh = key == null ? null : client.getForecastCache().getIfPresent(key);
+        if (fresh != null) {
+            track(city);
+            return WeatherResult.success(city, fresh);
+        }
+        WeatherData stale = key == null ? null : client.getForecastCache().getStale(key);
+        if (stale == null) {
+            return null;
+        }
+        staleReads.incrementAndGet();
+        synchronized (tracked) {
+            Tracked t = tracked.get(GeocodeCache.normalize(city));
+            if (t == null) {
+                tracked.put(GeocodeCache.normalize(city), new Tracked(city.trim(), 0));
+            } else if (!t.inFlight) {
+                t.dueAtMillis = 0;
+            }
+        }
+        scheduleRevalidation();
+        return WeatherResult.stale(city, stale, null, "refreshing in background");
+    }
+
+    public long getBatchCount()          { return batches.get(); }
+    public long getRefreshedCount()      { return refreshed.get(); }
+    public long getRefreshFailureCount() { return refreshFailures.get(); }
+    /** Reads answered with an expired forecast while revalidating. */
+    public long getStaleReadCount()      { return staleReads.get(); }
+
+    // ---------------------------------------------------------------- internals
+
+    private void scheduleRevalidation() {
+        if (revalidatePending.compareAndSet(false, true) && !ticker.isShutdown()) {
+            ticker.schedule(() -> {
+                revalidatePending.set(false);
+                tick();
+            }, REVALIDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Sends every city due within the batch window in one batched refresh. */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<Tracked> due = new ArrayList<>();
+        synchronized (tracked) {
+            for (Tracked t : tracked.values()) {
+                if (!t.inFlight && t.dueAtMillis <= now + BATCH_WINDOW_MILLIS) {
+                    t.inFlight = true;
+                    due.add(t);
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+        workers.execute(() -> refresh(due));
+    }
+
+    private void refresh(List<Tracked> due) {
+        List<String> cities = new ArrayList<>(due.size());
+        for (Tracked t : due) cities.add(t.city);
+
+        Map<String, WeatherResult> results;
+        try {
+            results = client.fetchWeatherForCities(cities);
+        } catch (RuntimeException e) {
+            results = new LinkedHashMap<>();
+        }
+
+        long now = System.currentTimeMillis();
+        for (Tracked t : due) {
+            WeatherResult r = results.get(t.city);
+            boolean ok = r != null && r.isSuccess() && !r.stale;
+            long expiry = ok ? cachedExpiry(t.city) : -1;
+            synchronized (tracked) {
+                t.inFlight = false;
+                if (ok) {
+                    t.failures = 0;
+                    t.dueAtMillis = Math.max(expiry, now) + jitter();
+                } else {
+                    long backoff = Math.min(MAX_RETRY_MILLIS, MIN_RETRY_MILLIS << Math.min(t.failures, 10));
+                    t.failures++;
+                    t.dueAtMillis = now + backoff + jitter();
+                }
+            }
+            if (ok) {
+                refreshed.incrementAndGet();
+            } else {
+                refreshFailures.incrementAndGet();
+            }
+            if (r != null) {
+                for (Consumer<WeatherResult> l : listeners) {
+                    try {
+                        l.accept(r);
+                    } catch (RuntimeException ignored) {
+                        // a misbehaving listener must not stop the scheduler
+                    }
+                }
+            }
+        }
+    }
+
+    /** Forecast cache key for an already geocoded city, or null. */
+    private String forecastKey(String city) {
+        GeoLocation loc = client.getGeocodeCache().peek(city);
+        return loc == null ? null : client.forecastKey(loc, client.getDefaultQuery());
+    }
+
+    private long cachedExpiry(String city) {
+        String key = forecastKey(city);
+        return key == null ? -1 : client.getForecastCache().getExpiryMillis(key);
+    }
+
+    private long jitter() {
+        return jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+    }
+}
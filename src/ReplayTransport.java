@@ -0,0 +1,116 @@
+// src/ReplayTransport.java
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpTransport} that serves responses from an archive written by
+ * {@link RecordingTransport}, with no network at all.
+ *
+ *   • latencyScale 0   → memory speed
+ *   • latencyScale 1   → each response is delayed by its recorded latency
+ *   • anything between/above scales the recorded latency
+ *
+ * A URL recorded several times replays its responses round‑robin. A URL
+ * that is not in the archive fails with an IOException.
+ */
+public class ReplayTransport implements HttpTransport {
+
+    private static class Exchange {
+        final int status;
+        final long latencyNanos;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        Exchange(int status, long latencyNanos, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.latencyNanos = latencyNanos;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final Map<String, List<Exchange>> exchanges = new HashMap<>();
+    private final Map<String, AtomicInteger> cursors = new HashMap<>();
+    private final double latencyScale;
+    private int size;
+
+    public ReplayTransport(File archive, double latencyScale) throws IOException {
+        this.latencyScale = latencyScale;
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(archive))))) {
+            if (in.readInt() != RecordingTransport.MAGIC) {
+                throw new IOException("Not a recording archive: " + archive);
+            }
+            int version = in.readUnsignedByte();
+            if (version != RecordingTransport.VERSION) {
+                throw new IOException("Unsupported archive version " + version);
+            }
+            while (readEntry(in)) {
+                size++;
+            }
+        }
+        for (String key : exchanges.keySet()) {
+            cursors.put(key, new AtomicInteger());
+        }
+    }
+
+    /** Number of recorded exchanges loaded. */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Response get(String url) throws IOException, InterruptedException {
+        String key = RecordingTransport.requestKey(url);
+        List<Exchange> list = exchanges.get(key);
+        if (list == null) {
+            throw new IOException("No recorded response for " + key);
+        }
+        Exchange ex = list.get(Math.floorMod(cursors.get(key).getAndIncrement(), list.size()));
+        if (latencyScale > 0) {
+            TimeUnit.NANOSECONDS.sleep((long) (ex.latencyNanos * latencyScale));
+        }
+        return new Response(ex.status, ex.headers, new ByteArrayInputStream(ex.body));
+    }
+
+    private boolean readEntry(DataInputStream in) throws IOException {
+        try {
+            if (!in.readBoolean()) {
+                return false;
+            }
+        } catch (EOFException e) {
+            return false; // recorder was killed before close(): keep what we have
+        }
+        try {
+            String key = in.readUTF();
+            int status = in.readInt();
+            long latency = in.readLong();
+            int headerCount = in.readInt();
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                headers.computeIfAbsent(in.readUTF(), k -> new ArrayList<>()).add(in.readUTF());
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            exchanges.computeIfAbsent(key, k -> new ArrayList<>())
+                     .add(new Exchange(status, latency, headers, body));
+            return true;
+        } catch (EOFException e) {
+            return false; // truncated last entry
+        }
+    }
+}
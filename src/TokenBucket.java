@@ -0,0 +1,102 @@
+// src/TokenBucket.java
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread‑safe token bucket shared by every upstream call of a
+ * {@link WeatherAPIClient}.
+ *
+ *   • Refills at {@code permitsPerSecond}, holding at most {@code burst} tokens.
+ *   • Waiters are served in arrival order: a caller that will get a token
+ *     within its timeout reserves the next free slot and sleeps until then,
+ *     so a long queue never starves anyone or re‑competes for tokens.
+ *   • {@link #pauseFor(long)} empties the bucket until a deadline, so a 429
+ *     with Retry‑After holds back every thread, not only the one that saw it.
+ */
+public class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private final double permitsPerSecond;
+    private double tokens;
+    /** When the next token not already stored becomes free (reserved slots push it forward). */
+    private long nextFreeNanos = System.nanoTime();
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be > 0");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.capacity = burst;
+        this.tokens = burst;
+    }
+
+    /** Takes a token if one is available right now. */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Waits up to {@code timeout} for a token, behind every earlier waiter.
+     * Returns false straight away (without waiting or taking a slot) when
+     * the bucket cannot supply one in time.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long wait = reserve(unit.toNanos(timeout));
+        if (wait < 0) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        if (wait > 0) {
+            throttled.incrementAndGet();
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+
+    /** Blocks all callers for at least {@code nanos} (e.g. an upstream Retry‑After). */
+    public synchronized void pauseFor(long nanos) {
+        long until = System.nanoTime() + nanos;
+        if (until - nextFreeNanos > 0) {
+            nextFreeNanos = until;
+        }
+        tokens = 0;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /** Calls that had to wait for a token. */
+    public long getThrottledCount() { return throttled.get(); }
+    /** Calls refused because no token would be available in time. */
+    public long getRejectedCount()  { return rejected.get(); }
+
+    /**
+     * Reserves the next slot: 0 → a token was taken now; > 0 → a token is
+     * reserved, usable after that many nanos; < 0 → no slot within
+     * {@code budgetNanos} (nothing reserved).
+     */
+    private synchronized long reserve(long budgetNanos) {
+        long now = System.nanoTime();
+        if (now - nextFreeNanos > 0) {
+            // Idle since the last slot: store what accrued, up to the burst
+            tokens = Math.min(capacity, tokens + (now - nextFreeNanos) * permitsPerNano);
+            nextFreeNanos = now;
+        }
+        double stored = Math.min(1, tokens);
+        long ready = nextFreeNanos + (long) Math.ceil((1 - stored) / permitsPerNano);
+        long wait = Math.max(0, ready - now);
+        if (wait > budgetNanos) {
+            return -1;
+        }
+        tokens -= stored;
+        nextFreeNanos = ready;
+        return wait;
+    }
+}
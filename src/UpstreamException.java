@@ -0,0 +1,24 @@
+// src/UpstreamException.java
+
+import java.io.IOException;
+
+/**
+ * An upstream call that failed for a reason callers can act on: rate
+ * limiting, an open circuit, or a non‑200 response that survived retries.
+ */
+public class UpstreamException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public final WeatherResult.ErrorKind kind;
+    /** HTTP status, or 0 when no response was received. */
+    public final int statusCode;
+    /** Server‑ or breaker‑suggested wait before retrying, or -1 if unknown. */
+    public final long retryAfterMillis;
+
+    public UpstreamException(WeatherResult.ErrorKind kind, int statusCode, long retryAfterMillis, String message) {
+        super(message);
+        this.kind = kind;
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -1,9 +1,37 @@
 // src/WeatherAPIClient.java
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -14,121 +42,1233 @@ import org.json.JSONObject;
  *
  * Uses Open‑Meteo (no API key required). All responses are in JSON,
  * parsed with org.json.
+ *
+ * Geocoding results are kept in a {@link GeocodeCache}, so a repeat lookup
+ * of the same city skips the Geocoding API entirely. Set the system property
+ * {@code weather.geocode.snapshot} to a file path to persist that cache
+ * across runs.
+ *
+ * An optional offline {@link GazetteerIndex} ({@link #setGazetteer}, or
+ * {@code -Dweather.gazetteer=} a GeoNames cities file or its compiled index
+ * via {@link #configuredGazetteer()}) answers geocoding from a memory‑mapped
+ * file; the Geocoding API is only called for names it lacks.
+ *
+ * Parsed forecasts are kept in a {@link ForecastCache} until the next
+ * Open‑Meteo model update, and concurrent lookups of the same location
+ * share a single upstream request.
+ *
+ * Optional grid snapping ({@link #setGridDegrees}, {@code -Dweather.grid=0.1})
+ * moves forecast coordinates to the centre of a {@link GeoGrid} cell, so
+ * suburbs, alternate spellings and neighbouring towns in one model cell
+ * share a cached forecast and an upstream request.
+ * {@link #nearestCachedForecast} serves the closest cached forecast locally.
+ *
+ * {@link #fetchWeatherAsync(String)} runs a lookup on a dedicated
+ * executor (virtual threads on JDK 21+, daemon platform threads otherwise)
+ * so UI threads never block on the network.
+ *
+ * {@link #fetchWeatherForCities(Collection)} refreshes many cities with
+ * parallel geocoding and multi‑coordinate forecast requests.
+ *
+ * All HTTP goes through a pluggable {@link HttpTransport} (by default a
+ * pooled, timeout‑aware {@link JdkHttpTransport}). The API base URLs are
+ * configurable, so a local stub server can stand in for Open‑Meteo; the
+ * defaults can also be overridden with the system properties
+ * {@code weather.geocoding.url} and {@code weather.forecast.url}.
+ *
+ * Forecast responses are parsed with the streaming {@link ForecastStreamParser}
+ * by default; org.json remains available as a fallback.
+ *
+ * Upstream admission (Open‑Meteo rate‑limits free clients):
+ *   • every call takes a token from a shared {@link TokenBucket}
+ *     ({@code -Dweather.rate=10} calls/s, {@code -Dweather.rate.burst=20}; 0 disables)
+ *   • 429 / 5xx / I/O failures are retried with jittered exponential backoff,
+ *     waiting at least as long as the server's Retry‑After
+ *   • a {@link CircuitBreaker} per API fails fast while upstream is unhealthy,
+ *     and an expired cached forecast is served (marked stale) instead
+ *   • {@link #fetchWeather(String)} reports failures as a typed {@link WeatherResult}
+ *
+ * Deadline budgets: {@link #fetchWeather(String, ForecastQuery, Duration)}
+ * splits a total budget between geocoding and forecast. An upstream call
+ * still running after its phase's observed p95 gets one hedged duplicate;
+ * the first answer wins and the other is cancelled. Hedges are capped at
+ * {@link #setHedgeRatio a share} of budgeted calls and counted in the metrics.
+ * When the budget runs out the best cached data is returned, marked stale.
+ *
+ * Every lookup is timed per phase (connect, geocode, forecast, read, parse,
+ * model build) in {@link #getMetrics()}, which can be published over JMX.
+ *
+ * Record / replay (for soak tests and offline runs):
+ *   -Dweather.record=traffic.bin          record every upstream exchange
+ *   -Dweather.replay=traffic.bin          serve responses from the archive, no network
+ *   -Dweather.replay.latency=1.0          re‑apply recorded latencies (0 = memory speed)
  */
 public class WeatherAPIClient {
+    /** Default LRU capacity of the geocoding cache. */
+    public static final int DEFAULT_GEOCODE_CACHE_SIZE = 1024;
+    /** Default LRU capacity of the forecast cache. */
+    public static final int DEFAULT_FORECAST_CACHE_SIZE = 1024;
+    public static final String DEFAULT_GEOCODING_BASE_URL = "https://geocoding-api.open-meteo.com/v1/search";
+    public static final String DEFAULT_FORECAST_BASE_URL = "https://api.open-meteo.com/v1/forecast";
+
+    /** Maximum number of coordinates sent in one multi‑location forecast request. */
+    public static final int FORECAST_BATCH_SIZE = 50;
+    /** Concurrent Geocoding API calls of one batch when there is no rate limiter. */
+    private static final int BATCH_GEOCODE_PARALLELISM = 16;
+
+    /** Default client‑side rate limit (Open‑Meteo's free tier allows 600 calls/minute). */
+    public static final double DEFAULT_RATE_PER_SECOND = 10;
+    public static final int DEFAULT_RATE_BURST = 20;
+    /** Consecutive failures that open a circuit, and how long it stays open. */
+    public static final int DEFAULT_BREAKER_THRESHOLD = 5;
+    public static final long DEFAULT_BREAKER_OPEN_MILLIS = 30_000;
+
+    /** Longest budget a budgeted lookup honours; larger ones are capped (keeps deadline arithmetic in range). */
+    public static final Duration MAX_BUDGET = Duration.ofMinutes(10);
+    /** At most this share of budgeted upstream calls is hedged (plus a small burst). */
+    public static final double DEFAULT_HEDGE_RATIO = 0.05;
+    private static final double HEDGE_BURST = 5;
+    /** A phase is hedged only once its p95 is based on this many samples. */
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 95;
+    /** Budget share of geocoding until both phases have a p95. */
+    private static final double DEFAULT_GEOCODE_SHARE = 0.4;
+    /** A fresh cached forecast this close may stand in when the budget runs out. */
+    private static final double NEARBY_FALLBACK_KM = 25;
+
+    private final GeocodeCache geocodeCache;
+    private final ForecastCache forecastCache;
+    private final WeatherMetrics metrics;
+    private final ExecutorService executor = newWorkerExecutor("weather-client");
+
+    private volatile HttpTransport transport = transportFromProperties();
+    private volatile String geocodingBaseUrl =
+            System.getProperty("weather.geocoding.url", DEFAULT_GEOCODING_BASE_URL);
+    private volatile String forecastBaseUrl =
+            System.getProperty("weather.forecast.url", DEFAULT_FORECAST_BASE_URL);
+    private volatile ForecastQuery defaultQuery = ForecastQuery.DEFAULT;
+    private volatile boolean streamingParser =
+            !"orgjson".equalsIgnoreCase(System.getProperty("weather.json.parser"));
+
+    private volatile GazetteerIndex gazetteer;
+    /** Forecast snapping grid; null = exact geocoded coordinates. */
+    private volatile GeoGrid<?> forecastGrid = gridFromProperty();
+    private volatile TokenBucket rateLimiter = rateLimiterFromProperties();
+    private final CircuitBreaker geocodeBreaker =
+            new CircuitBreaker(DEFAULT_BREAKER_THRESHOLD, DEFAULT_BREAKER_OPEN_MILLIS);
+    private final CircuitBreaker forecastBreaker =
+            new CircuitBreaker(DEFAULT_BREAKER_THRESHOLD, DEFAULT_BREAKER_OPEN_MILLIS);
+    private volatile int maxRetries = 3;
+    private volatile long baseBackoffMillis = 250;
+    private volatile long maxBackoffMillis = 8_000;
+    /** Longest a call waits for a rate‑limit token or a Retry‑After before giving up. */
+    private volatile long maxWaitMillis = 10_000;
+    private volatile boolean serveStaleOnFailure = true;
+    private volatile double hedgeRatio = DEFAULT_HEDGE_RATIO;
+    private final Object hedgeLock = new Object();
+    private double hedgeCredit = 1; // guarded by hedgeLock
+    // Caps batch geocodes waiting on the rate limiter; resized with it (guarded by this)
+    private Semaphore batchGeocodeSlots;
+    private TokenBucket batchGeocodeLimiter;
+    private long batchGeocodeMaxWait;
+
+    public WeatherAPIClient() {
+        this(new GeocodeCache(DEFAULT_GEOCODE_CACHE_SIZE, 0, snapshotFileFromProperty()),
+             new ForecastCache(DEFAULT_FORECAST_CACHE_SIZE));
+    }
+
+    public WeatherAPIClient(GeocodeCache geocodeCache, ForecastCache forecastCache) {
+        this.geocodeCache = geocodeCache;
+        this.forecastCache = forecastCache;
+        this.metrics = new WeatherMetrics(geocodeCache, forecastCache);
+    }
+
+    public GeocodeCache getGeocodeCache() {
+        return geocodeCache;
+    }
+
+    /** Per‑phase latency histograms and counters of this client. */
+    public WeatherMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ForecastCache getForecastCache() {
+        return forecastCache;
+    }
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    public ForecastQuery getDefaultQuery() {
+        return defaultQuery;
+    }
+
+    /** Query used by the overloads that don't take a {@link ForecastQuery}. */
+    public void setDefaultQuery(ForecastQuery query) {
+        this.defaultQuery = query;
+    }
+
+    /**
+     * true (default) → forecasts are parsed straight from the response stream
+     * by {@link ForecastStreamParser}; false → buffered org.json parsing.
+     * The default can be flipped with {@code -Dweather.json.parser=orgjson}.
+     */
+    public void setStreamingParser(boolean streaming) {
+        this.streamingParser = streaming;
+    }
+
+    public GazetteerIndex getGazetteer() {
+        return gazetteer;
+    }
+
+    /** Offline geocoder consulted before the Geocoding API; null = API only. */
+    public void setGazetteer(GazetteerIndex gazetteer) {
+        this.gazetteer = gazetteer;
+    }
+
+    /** Forecast grid cell size in degrees, 0 when snapping is off. */
+    public double getGridDegrees() {
+        GeoGrid<?> grid = forecastGrid;
+        return grid == null ? 0 : grid.getCellDegrees();
+    }
+
+    /**
+     * Snaps forecast coordinates to cells of {@code degrees} (0.1 ≈ 11 km,
+     * about the resolution of Open‑Meteo's global models); 0 turns it off.
+     * Results still carry each city's own name and coordinates.
+     */
+    public void setGridDegrees(double degrees) {
+        this.forecastGrid = degrees > 0 ? new GeoGrid<>(degrees) : null;
+    }
+
+    public double getHedgeRatio() {
+        return hedgeRatio;
+    }
+
+    /**
+     * Caps hedged duplicates of budgeted calls at {@code ratio} of those
+     * calls (0 turns hedging off). Each budgeted call earns {@code ratio}
+     * of a credit, up to a small burst, and each hedge spends one.
+     */
+    public void setHedgeRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio must be in [0, 1]");
+        }
+        this.hedgeRatio = ratio;
+    }
+
+    public TokenBucket getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /** Shared upstream rate limiter; null disables client‑side limiting. */
+    public void setRateLimiter(TokenBucket rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public CircuitBreaker getGeocodeBreaker() {
+        return geocodeBreaker;
+    }
+
+    public CircuitBreaker getForecastBreaker() {
+        return forecastBreaker;
+    }
+
+    /**
+     * Retries per upstream call after the first attempt, and the backoff
+     * range: attempt n waits a random time in [cap/2, cap] with
+     * cap = min(maxBackoffMillis, baseBackoffMillis × 2ⁿ).
+     */
+    public void setRetryPolicy(int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /** Longest a call may wait for a rate‑limit token or a Retry‑After (default 10 s). */
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /** true (default) → serve an expired cached forecast when upstream fails. */
+    public void setServeStaleOnFailure(boolean serveStale) {
+        this.serveStaleOnFailure = serveStale;
+    }
+
+    /** e.g. "http://localhost:8089/v1/search" for a stub server. */
+    public void setGeocodingBaseUrl(String url) {
+        this.geocodingBaseUrl = url;
+    }
+
+    /** e.g. "http://localhost:8089/v1/forecast" for a stub server. */
+    public void setForecastBaseUrl(String url) {
+        this.forecastBaseUrl = url;
+    }
+
+    /**
+     * Returns a virtual‑thread‑per‑task executor when the running JDK has one
+     * (looked up reflectively so the code still compiles on JDK 17), otherwise
+     * an unbounded pool of daemon threads named {@code <prefix>-N}.
+     */
+    static ExecutorService newWorkerExecutor(String prefix) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Default transport: a {@link ReplayTransport} or a recording wrapper
+     * around {@link JdkHttpTransport} when the record/replay properties are set.
+     */
+    private static HttpTransport transportFromProperties() {
+        String replay = System.getProperty("weather.replay");
+        String record = System.getProperty("weather.record");
+        try {
+            if (replay != null && !replay.isEmpty()) {
+                double scale = Double.parseDouble(System.getProperty("weather.replay.latency", "0"));
+                return new ReplayTransport(new File(replay), scale);
+            }
+            HttpTransport http = new JdkHttpTransport();
+            if (record != null && !record.isEmpty()) {
+                return RecordingTransport.shared(http, new File(record));
+            }
+            return http;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open record/replay archive", e);
+        }
+    }
+
+    /** Token bucket from weather.rate / weather.rate.burst; none when replaying. */
+    private static TokenBucket rateLimiterFromProperties() {
+        String replay = System.getProperty("weather.replay");
+        double rate = Double.parseDouble(System.getProperty("weather.rate",
+                String.valueOf(DEFAULT_RATE_PER_SECOND)));
+        if (rate <= 0 || (replay != null && !replay.isEmpty())) {
+            return null;
+        }
+        return new TokenBucket(rate, Integer.getInteger("weather.rate.burst", DEFAULT_RATE_BURST));
+    }
+
+    /**
+     * Opens the gazetteer named by weather.gazetteer (a GeoNames text file or
+     * compiled index), or returns null if the property is unset. Not done by
+     * the constructor: a text file is compiled on first use, which can take
+     * seconds, so callers open it where that is acceptable (the app does it
+     * in the background) and install it with {@link #setGazetteer}.
+     */
+    public static GazetteerIndex configuredGazetteer() throws IOException {
+        String path = System.getProperty("weather.gazetteer");
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            return GazetteerIndex.open(new File(path));
+        } catch (IOException e) {
+            throw new IOException("Cannot open gazetteer " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static GeoGrid<?> gridFromProperty() {
+        double degrees = Double.parseDouble(System.getProperty("weather.grid", "0"));
+        return degrees > 0 ? new GeoGrid<>(degrees) : null;
+    }
+
+    private static File snapshotFileFromProperty() {
+        String path = System.getProperty("weather.geocode.snapshot");
+        return (path == null || path.isEmpty()) ? null : new File(path);
+    }
+
     /**
      * Given a city name (e.g. "Tokyo"), returns a WeatherData object.
-     * If city not found or any error occurs, returns null.
+     * If city not found or any error occurs, returns null; use
+     * {@link #fetchWeather(String)} to find out why.
      */
     public WeatherData fetchWeatherForCity(String city) {
+        return fetchWeatherForCity(city, defaultQuery);
+    }
+
+    /** Same as {@link #fetchWeatherForCity(String)} but with explicit variables / horizon. */
+    public WeatherData fetchWeatherForCity(String city, ForecastQuery query) {
+        return fetchWeather(city, query).data;
+    }
+
+    /**
+     * Same as {@link #fetchWeatherForCity(String)}, but returns within about
+     * {@code budget}: the best cached forecast (possibly stale) or null if
+     * nothing could be had in time.
+     */
+    public WeatherData fetchWeatherForCity(String city, Duration budget) {
+        return fetchWeather(city, defaultQuery, budget).data;
+    }
+
+    /**
+     * Looks up one city and never returns null: the result carries the data
+     * (possibly a stale cached forecast while upstream is failing) or a
+     * typed {@link WeatherResult.ErrorKind} and message.
+     */
+    public WeatherResult fetchWeather(String city) {
+        return fetchWeather(city, defaultQuery);
+    }
+
+    public WeatherResult fetchWeather(String city, ForecastQuery query) {
+        metrics.lookup(1);
+        WeatherResult result = lookup(city, query);
+        metrics.outcome(result);
+        return result;
+    }
+
+    public WeatherResult fetchWeather(String city, Duration budget) {
+        return fetchWeather(city, defaultQuery, budget);
+    }
+
+    /**
+     * {@link #fetchWeather(String, ForecastQuery)} within a total time budget:
+     *   • geocoding from the cache or gazetteer is free; otherwise the API
+     *     call may use a share of the budget in proportion to the two
+     *     phases' p95 latencies, and the forecast gets the rest
+     *   • each upstream call is hedged once it runs past its phase's p95
+     *     (see {@link #setHedgeRatio})
+     *   • when the budget runs out the result is the expired cached forecast
+     *     or a fresh one within {@value #NEARBY_FALLBACK_KM} km (stale,
+     *     {@link WeatherResult.ErrorKind#DEADLINE_EXCEEDED}), else a failure
+     *     of that kind. Calls still in flight finish in the background and
+     *     fill the caches for the next lookup.
+     * Budgets longer than {@link #MAX_BUDGET} are capped to it.
+     */
+    public WeatherResult fetchWeather(String city, ForecastQuery query, Duration budget) {
+        metrics.lookup(1);
+        Duration capped = budget.compareTo(MAX_BUDGET) > 0 ? MAX_BUDGET : budget;
+        WeatherResult result = lookupWithin(city, query, Math.max(0, capped.toNanos()));
+        metrics.outcome(result);
+        return result;
+    }
+
+    private WeatherResult lookupWithin(String city, ForecastQuery query, long budgetNanos) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+
+        // 1) Geocoding: local sources first, the API within its share of the budget
+        GeoLocation loc;
         try {
-            // 1) Geocoding: get latitude & longitude
-            String cityEncoded = city.trim().replace(" ", "%20");
-            String geoUrl = "https://geocoding-api.open-meteo.com/v1/search?"
-                          + "name=" + cityEncoded + "&count=1";
-
-            HttpURLConnection geoConn = (HttpURLConnection) new URL(geoUrl).openConnection();
-            geoConn.setRequestMethod("GET");
-            if (geoConn.getResponseCode() != 200) {
-                return null;
-            }
-
-            BufferedReader geoReader = new BufferedReader(
-                    new InputStreamReader(geoConn.getInputStream()));
-            StringBuilder geoSb = new StringBuilder();
-            String line;
-            while ((line = geoReader.readLine()) != null) {
-                geoSb.append(line);
-            }
-            geoReader.close();
-
-            JSONObject geoJson = new JSONObject(geoSb.toString());
-            if (!geoJson.has("results")) {
-                return null;
-            }
-            JSONArray results = geoJson.getJSONArray("results");
-            if (results.length() == 0) {
-                return null; // city not found
-            }
-
-            JSONObject firstMatch = results.getJSONObject(0);
-            double lat = firstMatch.getDouble("latitude");
-            double lon = firstMatch.getDouble("longitude");
-            String resolvedName = firstMatch.getString("name");
-
-            // 2) Forecast API: current + hourly forecast (next few hours)
-            //    Request: current=temperature_2m,relative_humidity_2m,precipitation,wind_speed_10m,weather_code
-            //    & hourly=temperature_2m & timezone=auto
-            String weatherUrl = String.format(
-                "https://api.open-meteo.com/v1/forecast?"
-              + "latitude=%.4f&longitude=%.4f"
-              + "&current=temperature_2m,relative_humidity_2m,precipitation,wind_speed_10m,weather_code"
-              + "&hourly=temperature_2m"
-              + "&timezone=auto",
-                lat, lon
-            );
-
-            HttpURLConnection weatherConn = (HttpURLConnection) new URL(weatherUrl).openConnection();
-            weatherConn.setRequestMethod("GET");
-            if (weatherConn.getResponseCode() != 200) {
-                return null;
-            }
-
-            BufferedReader weatherReader = new BufferedReader(
-                    new InputStreamReader(weatherConn.getInputStream()));
-            StringBuilder weatherSb = new StringBuilder();
-            while ((line = weatherReader.readLine()) != null) {
-                weatherSb.append(line);
-            }
-            weatherReader.close();
-
-            JSONObject weatherJson = new JSONObject(weatherSb.toString());
-            if (!weatherJson.has("current")) {
-                return null;
-            }
-            JSONObject current = weatherJson.getJSONObject("current");
-            WeatherData data = new WeatherData();
-            data.cityName = resolvedName;
-            data.latitude = lat;
-            data.longitude = lon;
-            data.currentTime = current.getString("time"); // e.g. "2025-06-05T18:00"
-            data.temperatureC = current.getDouble("temperature_2m");
-            data.relativeHumidityPercent = current.getDouble("relative_humidity_2m");
-            data.precipitationMM = current.getDouble("precipitation");
-            data.windSpeedKmh = current.getDouble("wind_speed_10m");
-            data.weatherCode = current.getInt("weather_code");
-
-            // 3) Short‑term forecast: pick the next 3 entries from hourly arrays
-            //    The “hourly” object has:
-            //      "time": [ "2025-06-05T18:00", "2025-06-05T19:00", ... ]
-            //      "temperature_2m": [ 28.5, 27.9, ... ]
-            JSONObject hourly = weatherJson.getJSONObject("hourly");
-            JSONArray times = hourly.getJSONArray("time");
-            JSONArray temps = hourly.getJSONArray("temperature_2m");
-
-            // Find the index of “current.time” in the hourly.time array:
-            String now = data.currentTime;
-            int idx = -1;
-            for (int i = 0; i < times.length(); i++) {
-                if (times.getString(i).equals(now)) {
-                    idx = i;
-                    break;
+            loc = geocodeLocal(city);
+            if (loc == null) {
+                long geocodeDeadline = start + (long) (budgetNanos * geocodeShare());
+                loc = hedged(WeatherMetrics.Phase.GEOCODE, geocodeDeadline, () -> geocodeRemote(city))
+                        .get(geocodeDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            metrics.deadlineExceeded();
+            return WeatherResult.failure(city, WeatherResult.ErrorKind.DEADLINE_EXCEEDED,
+                    "Geocoding did not answer within " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms budget");
+        } catch (Exception e) {
+            return failure(city, "Geocoding failed: ", e);
+        }
+        if (loc == null) {
+            return WeatherResult.failure(city, WeatherResult.ErrorKind.NOT_FOUND, "City not found");
+        }
+
+        // 2) Forecast: cached, or loaded once (and hedged) for every concurrent caller
+        GeoLocation target = forecastLocation(loc);
+        String key = ForecastCache.key(target.latitude, target.longitude, query.toQueryString());
+        WeatherData fresh = forecastCache.getIfPresent(key);
+        if (fresh != null) {
+            return WeatherResult.success(city, forCity(fresh, loc));
+        }
+        CompletableFuture<WeatherData> load = submitAsync(() -> forecastCache.get(key,
+                () -> hedged(WeatherMetrics.Phase.FORECAST, deadline, () -> fetchForecast(target, query)).join()));
+        try {
+            WeatherData data = load.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return data != null
+                 ? WeatherResult.success(city, forCity(data, loc))
+                 : WeatherResult.failure(city, WeatherResult.ErrorKind.NO_DATA, "No forecast in response");
+        } catch (TimeoutException e) {
+            metrics.deadlineExceeded();
+            return bestAvailable(city, loc, key, query, budgetNanos);
+        } catch (ExecutionException e) {
+            return staleOrFailure(city, loc, key, failure(city, "Forecast request failed: ", e));
+        } catch (InterruptedException e) {
+            load.cancel(true);
+            return failure(city, "Forecast request failed: ", e);
+        }
+    }
+
+    /** What a budgeted lookup returns when the forecast didn't arrive in time. */
+    private WeatherResult bestAvailable(String city, GeoLocation loc, String key, ForecastQuery query, long budgetNanos) {
+        String late = "Forecast did not arrive within " + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms budget";
+        WeatherData stale = forecastCache.getStale(key);
+        if (stale != null) {
+            return WeatherResult.stale(city, forCity(stale, loc), WeatherResult.ErrorKind.DEADLINE_EXCEEDED,
+                    late + "; showing the last cached forecast");
+        }
+        WeatherData nearby = forecastCache.nearest(loc.latitude, loc.longitude, NEARBY_FALLBACK_KM, query.toQueryString());
+        if (nearby != null) {
+            long km = Math.round(GeoGrid.distanceKm(loc.latitude, loc.longitude, nearby.latitude, nearby.longitude));
+            return WeatherResult.stale(city, nearby.atLocation(loc), WeatherResult.ErrorKind.DEADLINE_EXCEEDED,
+                    late + "; showing the forecast for " + nearby.cityName + " (" + km + " km away)");
+        }
+        return WeatherResult.failure(city, WeatherResult.ErrorKind.DEADLINE_EXCEEDED, late);
+    }
+
+    /**
+     * Share of a budget the geocoding call may use: its p95 relative to the
+     * forecast's (kept within 20–80 %), or {@value #DEFAULT_GEOCODE_SHARE}
+     * until both phases have enough samples.
+     */
+    private double geocodeShare() {
+        LatencyHistogram geocode = metrics.latency(WeatherMetrics.Phase.GEOCODE);
+        LatencyHistogram forecast = metrics.latency(WeatherMetrics.Phase.FORECAST);
+        if (geocode.getCount() < MIN_HEDGE_SAMPLES || forecast.getCount() < MIN_HEDGE_SAMPLES) {
+            return DEFAULT_GEOCODE_SHARE;
+        }
+        double g = geocode.getValueAtPercentile(HEDGE_PERCENTILE);
+        double f = forecast.getValueAtPercentile(HEDGE_PERCENTILE);
+        return Math.max(0.2, Math.min(0.8, g / (g + f)));
+    }
+
+    /** One hedged call: the attempts in flight and their shared outcome. */
+    private static final class Hedge<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        /** Attempts not yet failed; 0 once all have failed. */
+        final AtomicInteger running = new AtomicInteger(1);
+        /** Latest attempt failure, reported if the last reservation is released. */
+        volatile Throwable failure;
+
+        /** Registers one more attempt, unless every attempt has already failed. */
+        boolean reserve() {
+            for (int n = running.get(); n > 0; n = running.get()) {
+                if (running.compareAndSet(n, n + 1)) return true;
+            }
+            return false;
+        }
+
+        /** Gives back a reservation whose attempt was never started. */
+        void release() {
+            if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        /** First success wins and cancels the rest; fails when the last attempt fails. */
+        boolean settle(T value, Throwable error) {
+            if (error == null) {
+                if (result.complete(value)) {
+                    for (CompletableFuture<T> a : attempts) a.cancel(true);
+                    return true;
+                }
+            } else {
+                failure = error;
+                if (running.decrementAndGet() == 0) {
+                    result.completeExceptionally(error);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Runs an upstream call on the executor and, if it is still running
+     * after {@code phase}'s observed p95 (well before {@code deadlineNanos})
+     * and the hedge cap allows, a duplicate of it. Completes with the first
+     * answer and cancels the other attempt; fails only if both fail.
+     */
+    private <T> CompletableFuture<T> hedged(WeatherMetrics.Phase phase, long deadlineNanos, Callable<T> call) {
+        metrics.hedgeable();
+        earnHedgeCredit();
+        Hedge<T> h = new Hedge<>();
+        CompletableFuture<T> primary = submitAsync(call);
+        h.attempts.add(primary);
+        primary.whenComplete(h::settle);
+
+        LatencyHistogram latency = metrics.latency(phase);
+        long delay = latency.getValueAtPercentile(HEDGE_PERCENTILE);
+        if (hedgeRatio > 0 && latency.getCount() >= MIN_HEDGE_SAMPLES
+                && System.nanoTime() + delay < deadlineNanos) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, executor).execute(() -> {
+                if (h.result.isDone() || !h.reserve()) return;
+                if (!takeHedgeCredit()) {
+                    h.release();
+                    metrics.hedgeThrottled();
+                    return;
+                }
+                metrics.hedge();
+                CompletableFuture<T> hedge = submitAsync(call);
+                h.attempts.add(hedge);
+                hedge.whenComplete((value, error) -> {
+                    if (h.settle(value, error)) metrics.hedgeWon();
+                });
+                if (h.result.isDone()) hedge.cancel(true); // the primary won meanwhile
+            });
+        }
+        return h.result;
+    }
+
+    private void earnHedgeCredit() {
+        synchronized (hedgeLock) {
+            hedgeCredit = Math.min(HEDGE_BURST, hedgeCredit + hedgeRatio);
+        }
+    }
+
+    private boolean takeHedgeCredit() {
+        synchronized (hedgeLock) {
+            if (hedgeCredit < 1) return false;
+            hedgeCredit -= 1;
+            return true;
+        }
+    }
+
+    private WeatherResult lookup(String city, ForecastQuery query) {
+        // 1) Geocoding: get latitude & longitude (cached)
+        GeoLocation loc;
+        try {
+            loc = geocode(city);
+        } catch (Exception e) {
+            return failure(city, "Geocoding failed: ", e);
+        }
+        if (loc == null) {
+            return WeatherResult.failure(city, WeatherResult.ErrorKind.NOT_FOUND, "City not found");
+        }
+
+        // 2) Forecast: served from the forecast cache, concurrent misses share one fetch
+        GeoLocation target = forecastLocation(loc);
+        String key = ForecastCache.key(target.latitude, target.longitude, query.toQueryString());
+        try {
+            WeatherData data = forecastCache.get(key, () -> fetchForecast(target, query));
+            return data != null
+                 ? WeatherResult.success(city, forCity(data, loc))
+                 : WeatherResult.failure(city, WeatherResult.ErrorKind.NO_DATA, "No forecast in response");
+        } catch (Exception e) {
+            return staleOrFailure(city, loc, key, failure(city, "Forecast request failed: ", e));
+        }
+    }
+
+    /**
+     * Forecast cache key for a geocoded location (grid‑snapped if enabled).
+     */
+    public String forecastKey(GeoLocation loc, ForecastQuery query) {
+        GeoLocation target = forecastLocation(loc);
+        return ForecastCache.key(target.latitude, target.longitude, query.toQueryString());
+    }
+
+    /**
+     * The nearest fresh cached forecast (default query) within {@code maxKm}
+     * of the point, or null. Never calls upstream; the result keeps the name
+     * and coordinates it was fetched for.
+     */
+    public WeatherData nearestCachedForecast(double lat, double lon, double maxKm) {
+        return forecastCache.nearest(lat, lon, maxKm, defaultQuery.toQueryString());
+    }
+
+    /** Where the forecast for {@code loc} is requested: its grid cell centre, or itself. */
+    private GeoLocation forecastLocation(GeoLocation loc) {
+        GeoGrid<?> grid = forecastGrid;
+        if (grid == null) {
+            return loc;
+        }
+        return new GeoLocation(loc.name, grid.snapLatitude(loc.latitude), grid.snapLongitude(loc.longitude));
+    }
+
+    /** A forecast fetched for a grid cell, reported under the city's own name and coordinates. */
+    private WeatherData forCity(WeatherData data, GeoLocation loc) {
+        if (forecastGrid == null
+                || (data.latitude == loc.latitude && data.longitude == loc.longitude
+                    && Objects.equals(data.cityName, loc.name))) {
+            return data;
+        }
+        return data.atLocation(loc);
+    }
+
+    /**
+     * Non‑blocking variant of {@link #fetchWeather(String)}.
+     * Cancelling the future interrupts the worker running the lookup.
+     */
+    public CompletableFuture<WeatherResult> fetchWeatherAsync(String city) {
+        return fetchWeatherAsync(city, defaultQuery);
+    }
+
+    public CompletableFuture<WeatherResult> fetchWeatherAsync(String city, ForecastQuery query) {
+        return submitAsync(() -> fetchWeather(city, query));
+    }
+
+    /**
+     * Non‑blocking variant of {@link #fetchWeatherForCity(String)}: completes
+     * with the data, or null if the city was not found or the lookup failed
+     * (use {@link #fetchWeatherAsync(String)} to find out why). Cancelling
+     * the future interrupts the worker running the lookup.
+     */
+    public CompletableFuture<WeatherData> fetchWeatherForCityAsync(String city) {
+        return fetchWeatherForCityAsync(city, defaultQuery);
+    }
+
+    public CompletableFuture<WeatherData> fetchWeatherForCityAsync(String city, ForecastQuery query) {
+        CompletableFuture<WeatherResult> lookup = fetchWeatherAsync(city, query);
+        CompletableFuture<WeatherData> data = lookup.thenApply(r -> r.data);
+        data.whenComplete((d, err) -> {
+            if (data.isCancelled()) {
+                lookup.cancel(true);
+            }
+        });
+        return data;
+    }
+
+    /** Non‑blocking variant of {@link #searchCities(String, int)}; cancel interrupts it. */
+    public CompletableFuture<List<GazetteerIndex.Match>> searchCitiesAsync(String name, int count) {
+        return submitAsync(() -> searchCities(name, count));
+    }
+
+    /** Runs {@code call} on the client executor; cancelling the future interrupts it. */
+    private <T> CompletableFuture<T> submitAsync(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.whenComplete((data, err) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fetches many cities at once. Geocoding runs in parallel, and forecasts
+     * that are not already cached are requested in chunks of up to
+     * {@link #FORECAST_BATCH_SIZE} coordinates per call using Open‑Meteo's
+     * comma‑separated latitude/longitude lists.
+     *
+     * Returns one {@link WeatherResult} per distinct input city (in input
+     * order); a failure for one city or chunk never fails the whole batch.
+     */
+    public Map<String, WeatherResult> fetchWeatherForCities(Collection<String> cities) {
+        return fetchWeatherForCities(cities, defaultQuery);
+    }
+
+    public Map<String, WeatherResult> fetchWeatherForCities(Collection<String> cities, ForecastQuery query) {
+        // 1) Geocode every distinct city: cache / gazetteer inline, the rest in
+        //    parallel. Each API call takes a slot before its task is submitted,
+        //    so a batch of thousands queues here: it neither parks a thread per
+        //    city nor overruns the rate limiter's wait limit (RATE_LIMITED).
+        Semaphore slots = batchGeocodeSlots();
+        if (slots == null) {
+            slots = new Semaphore(BATCH_GEOCODE_PARALLELISM);
+        }
+        Semaphore taken = slots;
+        InterruptedException interrupted = null;
+        Map<String, CompletableFuture<GeoLocation>> geoFutures = new LinkedHashMap<>();
+        for (String city : cities) {
+            if (city == null || city.trim().isEmpty() || geoFutures.containsKey(city)) continue;
+            GeoLocation local = geocodeLocal(city);
+            if (local != null) {
+                geoFutures.put(city, CompletableFuture.completedFuture(local));
+                continue;
+            }
+            if (interrupted == null) {
+                try {
+                    taken.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = e;
+                    Thread.currentThread().interrupt();
                 }
             }
-            // If we didn’t find it, just start at 0:
-            if (idx < 0) idx = 0;
+            if (interrupted != null) {
+                geoFutures.put(city, CompletableFuture.failedFuture(interrupted));
+                continue;
+            }
+            geoFutures.put(city, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return geocodeRemote(city);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    taken.release();
+                }
+            }, executor));
+        }
+
+        Map<String, WeatherResult> results = new LinkedHashMap<>();
+        // forecast cache key → location + the input cities resolving to it
+        Map<String, GeoLocation> pendingLocations = new LinkedHashMap<>();
+        Map<String, List<String>> pendingCities = new HashMap<>();
+        Map<String, GeoLocation> cityLocations = new HashMap<>();
+
+        for (Map.Entry<String, CompletableFuture<GeoLocation>> ge : geoFutures.entrySet()) {
+            String city = ge.getKey();
+            GeoLocation loc;
+            try {
+                loc = ge.getValue().join();
+            } catch (CompletionException e) {
+                results.put(city, failure(city, "Geocoding failed: ", e));
+                continue;
+            }
+            if (loc == null) {
+                results.put(city, WeatherResult.failure(city, WeatherResult.ErrorKind.NOT_FOUND, "City not found"));
+                continue;
+            }
+            // 2) Cached forecasts need no upstream call at all
+            String key = forecastKey(loc, query);
+            WeatherData cached = forecastCache.getIfPresent(key);
+            if (cached != null) {
+                results.put(city, WeatherResult.success(city, forCity(cached, loc)));
+                continue;
+            }
+            results.put(city, null); // placeholder keeps input order
+            cityLocations.put(city, loc);
+            pendingLocations.putIfAbsent(key, forecastLocation(loc));
+            pendingCities.computeIfAbsent(key, k -> new ArrayList<>()).add(city);
+        }
+
+        // 3) Multi‑coordinate forecast requests, one task per chunk
+        List<String> keys = new ArrayList<>(pendingLocations.keySet());
+        List<CompletableFuture<Void>> chunkTasks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += FORECAST_BATCH_SIZE) {
+            List<String> chunkKeys = keys.subList(from, Math.min(from + FORECAST_BATCH_SIZE, keys.size()));
+            chunkTasks.add(CompletableFuture.runAsync(() -> {
+                List<GeoLocation> chunk = new ArrayList<>();
+                for (String k : chunkKeys) chunk.add(pendingLocations.get(k));
 
-            // Collect the next three hourly entries (if available)
-            for (int i = idx + 1; i < times.length() && data.forecastList.size() < 3; i++) {
-                String t = times.getString(i);                 // e.g. "2025-06-05T19:00"
-                double tempNext = temps.getDouble(i);
-                data.forecastList.add(new WeatherData.ForecastEntry(t, tempNext));
+                List<WeatherData> forecasts;
+                Exception error = null;
+                try {
+                    forecasts = fetchForecastBatch(chunk, query);
+                } catch (Exception e) {
+                    forecasts = null;
+                    error = e;
+                }
+
+                // 4) Fan results back out to every city sharing each location
+                for (int i = 0; i < chunkKeys.size(); i++) {
+                    String k = chunkKeys.get(i);
+                    WeatherData data = forecasts == null ? null : forecasts.get(i);
+                    if (data != null) {
+                        forecastCache.put(k, data);
+                    }
+                    synchronized (results) {
+                        for (String city : pendingCities.get(k)) {
+                            WeatherResult r;
+                            if (data != null) {
+                                r = WeatherResult.success(city, forCity(data, cityLocations.get(city)));
+                            } else if (error != null) {
+                                r = staleOrFailure(city, cityLocations.get(city), k,
+                                        failure(city, "Forecast request failed: ", error));
+                            } else {
+                                r = WeatherResult.failure(city, WeatherResult.ErrorKind.NO_DATA, "No forecast in response");
+                            }
+                            results.put(city, r);
+                        }
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(chunkTasks.toArray(new CompletableFuture<?>[0])).join();
+
+        synchronized (results) {
+            metrics.lookup(results.size());
+            for (WeatherResult r : results.values()) {
+                metrics.outcome(r);
             }
+            return results;
+        }
+    }
 
+    /**
+     * Downloads and parses the forecast for an already geocoded location,
+     * bypassing the forecast cache. Returns null if the response has no
+     * current data; throws {@link UpstreamException} on a non‑200 response.
+     */
+    WeatherData fetchForecast(GeoLocation loc, ForecastQuery query) throws Exception {
+        String url = forecastUrl(
+                String.format(Locale.ROOT, "%.4f", loc.latitude),
+                String.format(Locale.ROOT, "%.4f", loc.longitude),
+                query);
+        long t0 = System.nanoTime();
+        long a0 = WeatherMetrics.threadAllocatedBytes();
+        try (HttpTransport.Response resp = upstreamGet(url, forecastBreaker, "Forecast API")) {
+            if (streamingParser) {
+                return ForecastStreamParser.parse(resp.body, loc, metrics);
+            }
+            JSONObject json = parseJson(readBody(resp));
+            long b0 = System.nanoTime();
+            long ba0 = WeatherMetrics.threadAllocatedBytes();
+            WeatherData data = parseForecast(json, loc);
+            metrics.record(WeatherMetrics.Phase.MODEL_BUILD, b0, ba0);
             return data;
-        } catch (Exception e) {
-            e.printStackTrace();
+        } finally {
+            metrics.record(WeatherMetrics.Phase.FORECAST, t0, a0);
+        }
+    }
+
+    /**
+     * Fetches forecasts for several locations in one request. The returned
+     * list is aligned with {@code locations}; entries are null where the
+     * response had no usable data. Throws if the request itself fails.
+     */
+    List<WeatherData> fetchForecastBatch(List<GeoLocation> locations, ForecastQuery query) throws Exception {
+        if (locations.size() == 1) {
+            return Collections.singletonList(fetchForecast(locations.get(0), query));
+        }
+        StringBuilder lats = new StringBuilder();
+        StringBuilder lons = new StringBuilder();
+        for (GeoLocation loc : locations) {
+            if (lats.length() > 0) {
+                lats.append(',');
+                lons.append(',');
+            }
+            lats.append(String.format(Locale.ROOT, "%.4f", loc.latitude));
+            lons.append(String.format(Locale.ROOT, "%.4f", loc.longitude));
+        }
+        String url = forecastUrl(lats.toString(), lons.toString(), query);
+        long t0 = System.nanoTime();
+        long a0 = WeatherMetrics.threadAllocatedBytes();
+        try (HttpTransport.Response resp = upstreamGet(url, forecastBreaker, "Forecast API")) {
+            if (streamingParser) {
+                return ForecastStreamParser.parseArray(resp.body, locations, metrics);
+            }
+
+            // Multiple coordinates → the response is a JSON array, one object per location
+            String body = readBody(resp);
+            long p0 = System.nanoTime();
+            long pa0 = WeatherMetrics.threadAllocatedBytes();
+            JSONArray array = new JSONArray(body);
+            metrics.record(WeatherMetrics.Phase.PARSE, p0, pa0);
+            long b0 = System.nanoTime();
+            long ba0 = WeatherMetrics.threadAllocatedBytes();
+            List<WeatherData> out = new ArrayList<>(locations.size());
+            for (int i = 0; i < locations.size(); i++) {
+                out.add(i < array.length() ? parseForecast(array.getJSONObject(i), locations.get(i)) : null);
+            }
+            metrics.record(WeatherMetrics.Phase.MODEL_BUILD, b0, ba0);
+            return out;
+        } finally {
+            metrics.record(WeatherMetrics.Phase.FORECAST, t0, a0);
+        }
+    }
+
+    /** Reads a whole (decoded) response body, recording read time and size. */
+    private String readBody(HttpTransport.Response resp) throws IOException {
+        long t0 = System.nanoTime();
+        byte[] bytes = resp.body.readAllBytes();
+        metrics.record(WeatherMetrics.Phase.READ, System.nanoTime() - t0);
+        metrics.addBytesRead(bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private JSONObject parseJson(String body) {
+        long t0 = System.nanoTime();
+        long a0 = WeatherMetrics.threadAllocatedBytes();
+        JSONObject json = new JSONObject(body);
+        metrics.record(WeatherMetrics.Phase.PARSE, t0, a0);
+        return json;
+    }
+
+    /**
+     * Forecast API URL for the given query, e.g. with {@link ForecastQuery#DEFAULT}:
+     *    current=temperature_2m,relative_humidity_2m,precipitation,wind_speed_10m,weather_code
+     *    &amp; hourly=temperature_2m &amp; forecast_hours=4 &amp; timezone=auto
+     * {@code lats}/{@code lons} are single values or comma‑separated lists.
+     */
+    private String forecastUrl(String lats, String lons, ForecastQuery query) {
+        return forecastBaseUrl + "?"
+             + "latitude=" + lats + "&longitude=" + lons
+             + "&" + query.toQueryString()
+             + "&timezone=auto";
+    }
+
+    /**
+     * org.json fallback for {@link ForecastStreamParser}: builds a WeatherData
+     * from one forecast JSON object, or null if it has no current data.
+     */
+    static WeatherData parseForecast(JSONObject weatherJson, GeoLocation loc) {
+        if (!weatherJson.has("current")) {
+            return null;
+        }
+        JSONObject current = weatherJson.getJSONObject("current");
+        WeatherData data = new WeatherData();
+        data.cityName = loc.name;
+        data.latitude = loc.latitude;
+        data.longitude = loc.longitude;
+        data.currentTime = current.getString("time"); // e.g. "2025-06-05T18:15"
+        // Variables missing from a custom ForecastQuery stay NaN / -1
+        data.temperatureC = current.optDouble("temperature_2m", Double.NaN);
+        data.relativeHumidityPercent = current.optDouble("relative_humidity_2m", Double.NaN);
+        data.precipitationMM = current.optDouble("precipitation", Double.NaN);
+        data.windSpeedKmh = current.optDouble("wind_speed_10m", Double.NaN);
+        data.weatherCode = current.optInt("weather_code", -1);
+
+        // Hourly / daily series:
+        //    "hourly": { "time": [ "2025-06-05T18:00", ... ], "temperature_2m": [ 28.5, ... ], ... }
+        data.utcOffsetSeconds = weatherJson.optInt("utc_offset_seconds", 0);
+        data.hourly = seriesFromJson(weatherJson.optJSONObject("hourly"), data.utcOffsetSeconds);
+        data.daily = seriesFromJson(weatherJson.optJSONObject("daily"), data.utcOffsetSeconds);
+
+        // Short‑term forecast: the next 3 hourly entries after current.time
+        data.deriveShortForecast();
+        return data;
+    }
+
+    /** org.json counterpart of the streaming parser's series handling. */
+    private static ForecastSeries seriesFromJson(JSONObject block, int utcOffsetSeconds) {
+        if (block == null) {
             return null;
         }
+        ForecastSeries.Builder b = new ForecastSeries.Builder();
+        JSONArray times = block.optJSONArray("time");
+        if (times != null) {
+            for (int i = 0; i < times.length(); i++) {
+                b.addLocalMinutes(ForecastSeries.parseLocalMinutes(times.getString(i)));
+            }
+        }
+        for (String name : block.keySet()) {
+            JSONArray values = block.optJSONArray(name);
+            if (name.equals("time") || values == null) continue;
+            int c = b.column(name);
+            for (int i = 0; i < values.length(); i++) {
+                b.addValue(c, values.optDouble(i, Double.NaN));
+            }
+        }
+        return b.build(utcOffsetSeconds);
+    }
+
+    /**
+     * All upstream GETs go through here: circuit breaker, then a rate‑limit
+     * token, then the transport. 429, 5xx and I/O failures are retried up to
+     * {@code maxRetries} times with jittered exponential backoff (never
+     * shorter than Retry‑After). Returns only 200 responses; anything else
+     * ends in an {@link UpstreamException} (or the last IOException).
+     */
+    private HttpTransport.Response upstreamGet(String url, CircuitBreaker breaker, String api)
+            throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            if (!breaker.allowRequest()) {
+                throw new UpstreamException(WeatherResult.ErrorKind.CIRCUIT_OPEN, 0,
+                        breaker.getRetryAfterMillis(), api + " unavailable (circuit open)");
+            }
+            TokenBucket limiter = rateLimiter;
+            if (limiter != null && !limiter.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new UpstreamException(WeatherResult.ErrorKind.RATE_LIMITED, 0, -1,
+                        "Client rate limit reached for " + api);
+            }
+
+            HttpTransport.Response resp;
+            long t0 = System.nanoTime();
+            try {
+                resp = transport.get(url);
+            } catch (IOException e) {
+                metrics.record(WeatherMetrics.Phase.CONNECT, System.nanoTime() - t0);
+                breaker.recordFailure();
+                if (attempt >= maxRetries) throw e;
+                metrics.retry();
+                sleepBackoff(attempt, -1);
+                continue;
+            }
+            metrics.record(WeatherMetrics.Phase.CONNECT, System.nanoTime() - t0);
+
+            int status = resp.statusCode;
+            if (status == 200) {
+                breaker.recordSuccess();
+                return resp;
+            }
+            long retryAfter = parseRetryAfter(resp.header("Retry-After"));
+            resp.close();
+            boolean retryable = status == 429 || status >= 500;
+            if (!retryable) {
+                breaker.recordSuccess(); // upstream is healthy, the request was not
+                throw new UpstreamException(WeatherResult.ErrorKind.UPSTREAM_ERROR, status, -1,
+                        api + " returned HTTP " + status);
+            }
+            breaker.recordFailure();
+            if (status == 429 && retryAfter > 0 && limiter != null) {
+                limiter.pauseFor(TimeUnit.MILLISECONDS.toNanos(retryAfter));
+            }
+            if (attempt >= maxRetries || retryAfter > maxWaitMillis) {
+                throw new UpstreamException(
+                        status == 429 ? WeatherResult.ErrorKind.RATE_LIMITED : WeatherResult.ErrorKind.UPSTREAM_ERROR,
+                        status, retryAfter, api + " returned HTTP " + status);
+            }
+            metrics.retry();
+            sleepBackoff(attempt, retryAfter);
+        }
+    }
+
+    /** "Equal jitter": a random wait in [cap/2, cap], at least {@code retryAfterMillis}. */
+    private void sleepBackoff(int attempt, long retryAfterMillis) throws InterruptedException {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap - cap / 2 + 1);
+        Thread.sleep(Math.max(delay, retryAfterMillis));
+    }
+
+    /** Retry‑After as delta‑seconds or an HTTP date → millis from now; -1 if absent/invalid. */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException e2) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Builds a typed failure from an exception. CANCELLED only if this thread
+     * was interrupted ({@code t} itself being an InterruptedException thrown
+     * here, whose flag is restored); an interrupt or cancellation that
+     * reached us from another thread's work is reported as INTERNAL.
+     */
+    private static WeatherResult failure(String city, String prefix, Throwable t) {
+        if (t instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        WeatherResult.ErrorKind kind = errorKind(t);
+        if (kind == WeatherResult.ErrorKind.CANCELLED && !Thread.currentThread().isInterrupted()) {
+            kind = WeatherResult.ErrorKind.INTERNAL;
+        }
+        return WeatherResult.failure(city, kind, prefix + rootMessage(t));
+    }
+
+    /** Falls back to an expired cached forecast (if allowed and present). */
+    private WeatherResult staleOrFailure(String city, GeoLocation loc, String key, WeatherResult failure) {
+        WeatherData stale = serveStaleOnFailure ? forecastCache.getStale(key) : null;
+        return stale != null ? WeatherResult.stale(city, forCity(stale, loc), failure.kind, failure.error) : failure;
+    }
+
+    private static String rootMessage(Throwable t) {
+        while (t.getCause() != null) t = t.getCause();
+        return t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
+    }
+
+    static WeatherResult.ErrorKind errorKind(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof UpstreamException) return ((UpstreamException) c).kind;
+            if (c instanceof InterruptedException || c instanceof CancellationException) {
+                return WeatherResult.ErrorKind.CANCELLED;
+            }
+            if (c instanceof IOException) return WeatherResult.ErrorKind.IO_ERROR;
+        }
+        return WeatherResult.ErrorKind.INTERNAL;
+    }
+
+    /**
+     * Resolves a city name to coordinates, consulting the geocoding cache
+     * and then the offline gazetteer (if any) first. Returns null if the
+     * city is unknown.
+     */
+    public GeoLocation geocode(String city) throws Exception {
+        GeoLocation local = geocodeLocal(city);
+        return local != null ? local : geocodeRemote(city);
+    }
+
+        /**
+     * Shared by all concurrent batches: half of what the rate limiter can
+     * admit within {@link #setMaxWaitMillis maxWaitMillis}, leaving room for
+     * other callers. null when there is no rate limiter.
+     */
+    private synchronized Semaphore batchGeocodeSlots() {
+        TokenBucket limiter = rateLimiter;
+        if (limiter == null) {
+            return null;
+        }
+        if (batchGeocodeSlots == null || limiter != batchGeocodeLimiter || maxWaitMillis != batchGeocodeMaxWait) {
+            int permits = (int) Math.max(1, limiter.getPermitsPerSecond() * maxWaitMillis / 1000 / 2);
+            batchGeocodeSlots = new Semaphore(permits, true);
+            batchGeocodeLimiter = limiter;
+            batchGeocodeMaxWait = maxWaitMillis;
+        }
+        return batchGeocodeSlots;
+    }
+
+    /** Geocoding cache, then gazetteer; null if neither knows {@code city}. */
+    private GeoLocation geocodeLocal(String city) {
+        GeoLocation cached = geocodeCache.get(city);
+        if (cached != null) {
+            return cached;
+        }
+        GazetteerIndex local = gazetteer;
+        GeoLocation offline = local != null ? local.lookup(city) : null;
+        if (offline != null) {
+            geocodeCache.put(city, offline);
+        }
+        return offline;
+    }
+
+    /** Geocoding API lookup (timed), cached when found. */
+    private GeoLocation geocodeRemote(String city) throws Exception {
+        long t0 = System.nanoTime();
+        long a0 = WeatherMetrics.threadAllocatedBytes();
+        try {
+            GeoLocation loc = geocodeUpstream(city);
+            if (loc != null) {
+                geocodeCache.put(city, loc);
+            }
+            return loc;
+        } finally {
+            metrics.record(WeatherMetrics.Phase.GEOCODE, t0, a0);
+        }
+    }
+
+    private GeoLocation geocodeUpstream(String city) throws Exception {
+        List<GazetteerIndex.Match> matches = geocodeSearch(city, 1);
+        return matches.isEmpty() ? null : matches.get(0).location; // empty: city not found
+    }
+
+    /**
+     * Up to {@code count} cities matching {@code name} from the Geocoding API
+     * (best match first), for type‑ahead suggestions. Neither cached nor
+     * checked against the gazetteer; the call is timed as a geocode phase.
+     */
+    public List<GazetteerIndex.Match> searchCities(String name, int count) throws Exception {
+        long t0 = System.nanoTime();
+        long a0 = WeatherMetrics.threadAllocatedBytes();
+        try {
+            return geocodeSearch(name, count);
+        } finally {
+            metrics.record(WeatherMetrics.Phase.GEOCODE, t0, a0);
+        }
+    }
+
+    private List<GazetteerIndex.Match> geocodeSearch(String name, int count) throws Exception {
+        String nameEncoded = URLEncoder.encode(name.trim(), StandardCharsets.UTF_8);
+        String geoUrl = geocodingBaseUrl + "?"
+                      + "name=" + nameEncoded + "&count=" + count;
+
+        String geoBody;
+        try (HttpTransport.Response resp = upstreamGet(geoUrl, geocodeBreaker, "Geocoding API")) {
+            geoBody = readBody(resp);
+        }
+
+        JSONObject geoJson = parseJson(geoBody);
+        List<GazetteerIndex.Match> matches = new ArrayList<>();
+        JSONArray results = geoJson.optJSONArray("results");
+        for (int i = 0; results != null && i < results.length(); i++) {
+            JSONObject r = results.getJSONObject(i);
+            matches.add(new GazetteerIndex.Match(
+                    new GeoLocation(r.getString("name"), r.getDouble("latitude"), r.getDouble("longitude")),
+                    r.optString("country_code", ""),
+                    r.optInt("population", 0)));
+        }
+        return matches;
     }
 }
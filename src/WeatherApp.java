@@ -1,12 +1,30 @@
 // src/WeatherApp.java
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main Swing‐based Weather Application.
@@ -14,12 +32,36 @@ import java.io.File;
  * Features:
  *  1) Uses WeatherAPIClient to fetch data from Open‑Meteo (no API key).
  *  2) Displays current weather: time, temp, humidity, precipitation, wind, condition (emoji).
- *  3) Short‑term forecast: next 3 hourly slots.
+ *  3) Hourly forecast chart: temperature, precipitation and wind for the
+ *     next 7 days ({@link HourlyChart}, fetched with
+ *     {@link ForecastQuery#HOURLY_CHART}); the wheel zooms, dragging scrolls.
  *  4) Unit conversion: °C ↔ °F, km/h ↔ mph.
  *  5) Error handling: invalid city → JOptionPane.
  *  6) History tracking: JList on the right.
  *  7) Dynamic background image indicating sunrise/day/sunset/night for the city’s local time.
+ *     The images are decoded once in the background at startup
+ *     ({@link BackgroundImages}); repaints blit a copy pre‑scaled to the window.
  *  8) “Reset” button clears fields and restores default background.
+ *  9) Lookups run off the Event Dispatch Thread with a progress bar and a
+ *     Cancel button; results of superseded searches are discarded.
+ * 10) Cities in the history are kept warm by a {@link RefreshScheduler}:
+ *     searching one again shows its cached forecast at once, and an expired
+ *     forecast is refreshed in the background and swapped in when it arrives.
+ * 11) Type‑ahead: a {@link CitySuggester} lists matching cities under the
+ *     city field as you type (history, bundled gazetteer, then a debounced
+ *     Geocoding API search); ↑/↓ + Enter or a click picks one.
+ * 12) Every observation shown or refreshed is appended to a local
+ *     {@link ObservationStore}; double‑clicking a history entry (or
+ *     "Past 30 days…") reopens recorded observations without a network call.
+ *     The store lives in ~/.weather-app/observations
+ *     ({@code -Dweather.store.dir} overrides it).
+ * 13) Instant‑on: the history, the last forecast per city, the city on
+ *     screen and the units are saved on exit ({@link AppSnapshot},
+ *     ~/.weather-app/last-state.bin or {@code -Dweather.app.snapshot}).
+ *     The next launch paints first, then shows that state marked
+ *     "last known" while the cities refresh in the background. JMX and the
+ *     HTTP client start after the first paint; time to first paint is
+ *     reported on stderr.
  *
  *  ★ Note: 4 background images in WeatherApp/images/:
  *      • sunrise.jpg
@@ -30,12 +72,33 @@ import java.io.File;
  */
 public class WeatherApp extends JFrame {
     private final WeatherAPIClient apiClient = new WeatherAPIClient();
+    private final RefreshScheduler refresher = new RefreshScheduler(apiClient);
+
+    /** Time‑of‑day backgrounds; decoding starts in {@link #main} before the UI is built. */
+    private static final BackgroundImages BACKGROUNDS = new BackgroundImages(new File("images"));
+
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    private static final File SNAPSHOT_FILE = snapshotFile();
+    /** Last‑known state, read in the background from {@link #main}; completes with null if none. */
+    private static CompletableFuture<AppSnapshot> snapshotLoad;
+    /** History entries kept in the snapshot (newest). */
+    private static final int MAX_SNAPSHOT_HISTORY = 100;
+
+    /** Offline city names for suggestions when no gazetteer is configured. */
+    private static final String BUNDLED_GAZETTEER = "data" + File.separator + "cities-sample.txt";
+    /** Quiet time after the last keystroke before asking the Geocoding API. */
+    private static final int SUGGEST_DEBOUNCE_MILLIS = 250;
 
     // UI components
     private final JTextField cityField = new JTextField(15);
     private final JButton searchButton = new JButton("Search");
     private final JButton resetButton = new JButton("Reset");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JProgressBar progressBar = new JProgressBar();
     private final JComboBox<String> unitBox = new JComboBox<>(new String[]{"Celsius", "Fahrenheit"});
+    private boolean settingUnits = false;
+    /** The user picked units themselves (so restoring the saved ones must not override them). */
+    private boolean unitsChosen = false;
 
     private final JLabel lblLocation = new JLabel("City: N/A");
     private final JLabel lblTime = new JLabel("Time: N/A");
@@ -45,19 +108,40 @@ public class WeatherApp extends JFrame {
     private final JLabel lblWind = new JLabel("Wind Speed: N/A");
     private final JLabel lblCondition = new JLabel("Condition: N/A");
 
-    private final JTextArea forecastArea = new JTextArea(5, 20);
+    private final HourlyChart hourlyChart = new HourlyChart();
     private final DefaultListModel<String> historyModel = new DefaultListModel<>();
     private final JList<String> historyList = new JList<>(historyModel);
 
+    // Type‑ahead suggestions under the city field
+    private final CitySuggester suggester = new CitySuggester(apiClient, null);
+    private final DefaultListModel<GazetteerIndex.Match> suggestionModel = new DefaultListModel<>();
+    private final JList<GazetteerIndex.Match> suggestionList = new JList<>(suggestionModel);
+    private final JPopupMenu suggestionPopup = new JPopupMenu();
+    private final Timer suggestTimer = new Timer(SUGGEST_DEBOUNCE_MILLIS, e -> requestRemoteSuggestions());
+    private boolean settingCityText = false;
+
+    // Recorded observations; opened in the background, null if unavailable
+    private volatile ObservationStore observations;
+    private final JButton pastButton = new JButton("Past 30 days…");
+    private boolean viewingRecorded = false;
+
     // For unit conversion
     private WeatherData lastData = null;
     private boolean showingCelsius = true;
 
+    // Latest forecast per city shown or refreshed; saved in the snapshot (EDT only)
+    private final Map<String, WeatherData> lastByCity = new LinkedHashMap<>();
+
+    // In‑flight lookup; searchSeq lets us drop results of superseded searches
+    private CompletableFuture<WeatherResult> pendingFetch = null;
+    private long searchSeq = 0;
+
     // BackgroundPanel that draws an image
-    private final BackgroundPanel backgroundPanel = new BackgroundPanel();
+    private final BackgroundPanel backgroundPanel = new BackgroundPanel(BACKGROUNDS);
 
     public WeatherApp() {
         super("Weather Information App");
+        apiClient.setDefaultQuery(ForecastQuery.HOURLY_CHART);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setSize(850, 550);
         setLocationRelativeTo(null);
@@ -73,6 +157,8 @@ public class WeatherApp extends JFrame {
         topPanel.add(cityField);
         topPanel.add(searchButton);
         topPanel.add(resetButton);
+        topPanel.add(cancelButton);
+        topPanel.add(progressBar);
         topPanel.add(new JLabel("Units:"));
         topPanel.add(unitBox);
 
@@ -111,16 +197,13 @@ public class WeatherApp extends JFrame {
         c.gridx = 0; c.gridy = 6;
         midPanel.add(lblCondition, c);
 
-        // Row 7: Forecast label + area
+        // Row 7: Forecast label; row 8: chart, taking all spare space
         c.gridx = 0; c.gridy = 7;
-        midPanel.add(new JLabel("Next 3‑Hour Forecast:"), c);
-        c.gridx = 1; c.gridy = 7;
-        forecastArea.setEditable(false);
-        forecastArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        forecastArea.setOpaque(false);
-        forecastArea.setForeground(Color.BLACK);
-        forecastArea.setBorder(BorderFactory.createLineBorder(Color.GRAY));
-        midPanel.add(new JScrollPane(forecastArea), c);
+        midPanel.add(new JLabel("Hourly Forecast (7 days):"), c);
+        c.gridx = 0; c.gridy = 8; c.gridwidth = 2;
+        c.fill = GridBagConstraints.BOTH; c.weightx = 1; c.weighty = 1;
+        hourlyChart.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        midPanel.add(hourlyChart, c);
 
         // Right panel: search history
         JPanel rightPanel = new JPanel(new BorderLayout());
@@ -132,25 +215,200 @@ public class WeatherApp extends JFrame {
         scrollHistory.setOpaque(false);
         scrollHistory.getViewport().setOpaque(false);
         rightPanel.add(scrollHistory, BorderLayout.CENTER);
+        rightPanel.add(pastButton, BorderLayout.SOUTH);
 
         // Assemble into the frame
         backgroundPanel.add(topPanel, BorderLayout.NORTH);
         backgroundPanel.add(midPanel, BorderLayout.CENTER);
         backgroundPanel.add(rightPanel, BorderLayout.EAST);
 
+        installSuggestions();
+
         // Button Listeners
         searchButton.addActionListener(this::onSearch);
         resetButton.addActionListener(e -> resetUI());
-        unitBox.addActionListener(e -> onUnitChange());
+        cancelButton.addActionListener(e -> cancelPendingFetch());
+        pastButton.addActionListener(e -> showPastObservations());
+        historyList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    int i = historyList.locationToIndex(e.getPoint());
+                    if (i >= 0) reopenHistoryEntry(historyModel.get(i));
+                }
+            }
+        });
+        unitBox.addActionListener(e -> {
+            if (!settingUnits) unitsChosen = true;
+            onUnitChange();
+        });
+
+        // Keep every city that enters the history warm in the background
+        historyModel.addListDataListener(new javax.swing.event.ListDataListener() {
+            @Override
+            public void intervalAdded(javax.swing.event.ListDataEvent e) {
+                for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                    refresher.track(historyCity(historyModel.get(i)));
+                }
+            }
+            @Override public void intervalRemoved(javax.swing.event.ListDataEvent e) {}
+            @Override public void contentsChanged(javax.swing.event.ListDataEvent e) {}
+        });
+        refresher.addListener(r -> {
+            recordObservation(r);
+            SwingUtilities.invokeLater(() -> onBackgroundRefresh(r));
+        });
+        refresher.start();
+
+        // Local observation history (segment files are mapped off the EDT)
+        CompletableFuture.runAsync(() -> {
+            try {
+                observations = new ObservationStore(storeDir());
+            } catch (IOException e) {
+                System.err.println("Observation history disabled: " + e.getMessage());
+            }
+        });
+
+        // Persist the geocoding cache (if a snapshot file is configured) on exit
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveSnapshot();
+                refresher.stop();
+                ObservationStore store = observations;
+                if (store != null) {
+                    try {
+                        store.close();
+                    } catch (IOException ignored) {}
+                }
+                try {
+                    apiClient.getGeocodeCache().save();
+                } catch (Exception ignored) {}
+            }
+        });
 
-        // Initial state: default background (no image)
-        backgroundPanel.setBackgroundImage(null);
+        progressBar.setIndeterminate(true);
+        setLoading(false);
+
+        // Initial state: default background (no image); repaint once the images are decoded
+        backgroundPanel.setPeriod(null);
+        BACKGROUNDS.preload().thenRun(() -> SwingUtilities.invokeLater(backgroundPanel::repaint));
+        backgroundPanel.onFirstPaint(this::afterFirstPaint);
 
         setVisible(true);
     }
 
-    /** Called when Search is clicked. */
+    /**
+     * Runs once the window has painted: restores the last‑known state and
+     * starts what the first paint didn't need (JMX, the HTTP client).
+     */
+    private void afterFirstPaint() {
+        long paintedNanos = System.nanoTime();
+        long paintedAtMillis = System.currentTimeMillis();
+        loadSnapshot().whenComplete((snapshot, err) -> SwingUtilities.invokeLater(() -> {
+            int restored = snapshot == null ? 0 : restoreSnapshot(snapshot);
+            reportStartup(paintedNanos, paintedAtMillis, restored);
+        }));
+        CompletableFuture.runAsync(() -> {
+            HttpTransport transport = apiClient.getTransport();
+            if (transport instanceof JdkHttpTransport) {
+                ((JdkHttpTransport) transport).warmUp();
+            }
+            // Lookup timings and counters, visible in JConsole / VisualVM
+            apiClient.getMetrics().register("WeatherApp");
+        });
+    }
+
+    private static void reportStartup(long paintedNanos, long paintedAtMillis, int restoredCities) {
+        String sinceJvm = ProcessHandle.current().info().startInstant()
+                .map(t -> " (" + (paintedAtMillis - t.toEpochMilli()) + " ms after JVM start)")
+                .orElse("");
+        System.err.printf("Startup: first paint %d ms after main%s; last-known state of %d cities shown at %d ms%n",
+                (paintedNanos - LAUNCH_NANOS) / 1_000_000, sinceJvm, restoredCities,
+                (System.nanoTime() - LAUNCH_NANOS) / 1_000_000);
+    }
+
+    /** Starts (once) reading the snapshot off the EDT; IO problems just mean a cold start. */
+    private static synchronized CompletableFuture<AppSnapshot> loadSnapshot() {
+        if (snapshotLoad == null) {
+            snapshotLoad = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return AppSnapshot.read(SNAPSHOT_FILE);
+                } catch (IOException e) {
+                    System.err.println("Ignoring saved app state: " + e.getMessage());
+                    return null;
+                }
+            });
+        }
+        return snapshotLoad;
+    }
+
+    private static File snapshotFile() {
+        String file = System.getProperty("weather.app.snapshot");
+        if (file != null && !file.isEmpty()) return new File(file);
+        return new File(System.getProperty("user.home"), ".weather-app" + File.separator + "last-state.bin");
+    }
+
+    /**
+     * Shows the state saved at the last exit (EDT only) and returns the
+     * number of cities restored. Forecasts go into the caches already
+     * expired, so they are served stale while the refresher fetches new
+     * ones; anything the user did before this ran is left alone.
+     */
+    private int restoreSnapshot(AppSnapshot s) {
+        for (WeatherData d : s.forecasts) {
+            GeoLocation loc = new GeoLocation(d.cityName, d.latitude, d.longitude);
+            if (apiClient.getGeocodeCache().peek(d.cityName) == null) {
+                apiClient.getGeocodeCache().put(d.cityName, loc);
+            }
+            String key = apiClient.forecastKey(loc, apiClient.getDefaultQuery());
+            if (apiClient.getForecastCache().getStale(key) == null) {
+                apiClient.getForecastCache().put(key, d, 0);
+            }
+            lastByCity.putIfAbsent(d.cityName, d);
+            suggester.addKnown(d.cityName, d.latitude, d.longitude);
+        }
+        // Older entries go before anything searched meanwhile; adding them tracks (refreshes) each city
+        for (int i = 0; i < s.history.size(); i++) {
+            historyModel.add(i, s.history.get(i));
+        }
+
+        WeatherData shown = s.shownCity == null ? null : s.forecastFor(s.shownCity);
+        if (shown != null && lastData == null && pendingFetch == null) {
+            displayWeather(shown);
+            lblTime.setText("Time: " + shown.currentTime + " (last known – refreshing…)");
+        }
+        if (!unitsChosen) {
+            selectUnits(s.fahrenheit ? 1 : 0);
+        }
+        return s.forecasts.size();
+    }
+
+    /** Saves history, last forecasts, the shown city and units for the next launch (EDT only). */
+    private void saveSnapshot() {
+        List<String> history = new ArrayList<>();
+        for (int i = Math.max(0, historyModel.size() - MAX_SNAPSHOT_HISTORY); i < historyModel.size(); i++) {
+            history.add(historyModel.get(i));
+        }
+        List<WeatherData> forecasts = new ArrayList<>();
+        Set<String> cities = new HashSet<>();
+        for (String entry : history) {
+            String city = historyCity(entry);
+            WeatherData d = lastByCity.get(city);
+            if (d != null && cities.add(city)) forecasts.add(d);
+        }
+        String shown = lastData != null && cities.contains(lastData.cityName) ? lastData.cityName : null;
+        try {
+            new AppSnapshot(System.currentTimeMillis(), "Fahrenheit".equals(unitBox.getSelectedItem()),
+                    shown, history, forecasts).write(SNAPSHOT_FILE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not save app state: " + e.getMessage());
+        }
+    }
+
+    /** Called when Search is clicked (or Enter is pressed without a suggestion). */
     private void onSearch(ActionEvent e) {
+        hideSuggestions();
         String city = cityField.getText().trim();
         if (city.isEmpty()) {
             JOptionPane.showMessageDialog(
@@ -162,21 +420,320 @@ public class WeatherApp extends JFrame {
             return;
         }
 
-        // Fetch weather data
-        WeatherData data = apiClient.fetchWeatherForCity(city);
-        if (data == null) {
-            JOptionPane.showMessageDialog(
-                this,
-                "Could not retrieve data for \"" + city + "\".\nMake sure the city name is valid.",
-                "API Error",
-                JOptionPane.ERROR_MESSAGE
-            );
+        // Cached (possibly expired and now revalidating) forecast: show it at once
+        cancelPendingFetch();
+        WeatherResult cached = refresher.getIfCached(city);
+        if (cached != null) {
+            showWeather(cached.data);
+            if (cached.stale) {
+                lblTime.setText("Time: " + cached.data.currentTime + " (" + cached.error + ")");
+            }
             return;
         }
 
+        // Fetch weather data off the EDT; a new search supersedes the previous one
+        long seq = ++searchSeq;
+        setLoading(true);
+        CompletableFuture<WeatherResult> future = apiClient.fetchWeatherAsync(city);
+        pendingFetch = future;
+        future.whenComplete((result, err) -> recordObservation(result));
+        future.whenComplete((result, err) -> SwingUtilities.invokeLater(() -> {
+            if (seq != searchSeq || future.isCancelled()) {
+                return; // stale or cancelled: a newer search owns the UI
+            }
+            pendingFetch = null;
+            setLoading(false);
+            if (result == null || !result.isSuccess()) {
+                JOptionPane.showMessageDialog(
+                    this,
+                    errorMessage(city, result),
+                    "API Error",
+                    JOptionPane.ERROR_MESSAGE
+                );
+                return;
+            }
+            showWeather(result.data);
+            if (result.stale) {
+                lblTime.setText("Time: " + result.data.currentTime + " (cached – " + result.error + ")");
+            }
+        }));
+    }
+
+    /** User‑facing text for a failed lookup. */
+    private static String errorMessage(String city, WeatherResult result) {
+        if (result == null) {
+            return "Could not retrieve data for \"" + city + "\".";
+        }
+        switch (result.kind) {
+            case NOT_FOUND:
+                return "Could not find \"" + city + "\".\nMake sure the city name is valid.";
+            case RATE_LIMITED:
+            case CIRCUIT_OPEN:
+                return "The weather service is busy or unavailable right now.\nPlease try again in a moment.\n(" + result.error + ")";
+            default:
+                return "Could not retrieve data for \"" + city + "\".\n" + result.error;
+        }
+    }
+
+    /** Cancels the in‑flight lookup (if any) so its result is never shown. */
+    private void cancelPendingFetch() {
+        searchSeq++;
+        if (pendingFetch != null) {
+            pendingFetch.cancel(true);
+            pendingFetch = null;
+        }
+        setLoading(false);
+    }
+
+    /** Wires the suggestion popup to the city field. */
+    private void installSuggestions() {
+        suggestionList.setFocusable(false);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionPopup.setFocusable(false); // typing stays in the city field
+        suggestionPopup.add(new JScrollPane(suggestionList));
+        suggestTimer.setRepeats(false);
+
+        cityField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e)  { onCityTyped(); }
+            @Override public void removeUpdate(DocumentEvent e)  { onCityTyped(); }
+            @Override public void changedUpdate(DocumentEvent e) {}
+        });
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = suggestionList.locationToIndex(e.getPoint());
+                if (i >= 0) chooseSuggestion(suggestionModel.get(i));
+            }
+        });
+
+        InputMap keys = cityField.getInputMap();
+        ActionMap actions = cityField.getActionMap();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "suggestion-next");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "suggestion-previous");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "suggestion-hide");
+        actions.put("suggestion-next", keyAction(() -> moveSuggestion(1)));
+        actions.put("suggestion-previous", keyAction(() -> moveSuggestion(-1)));
+        actions.put("suggestion-hide", keyAction(this::hideSuggestions));
+
+        // Enter picks the highlighted suggestion, otherwise searches the typed text
+        cityField.addActionListener(e -> {
+            GazetteerIndex.Match picked = suggestionPopup.isVisible() ? suggestionList.getSelectedValue() : null;
+            if (picked != null) {
+                chooseSuggestion(picked);
+            } else {
+                onSearch(e);
+            }
+        });
+
+        // The -Dweather.gazetteer index (for lookups and suggestions), else the
+        // bundled city names (suggestions only); mapped off the EDT, compiled on first run
+        CompletableFuture.runAsync(() -> {
+            try {
+                GazetteerIndex configured = WeatherAPIClient.configuredGazetteer();
+                if (configured != null) {
+                    apiClient.setGazetteer(configured);
+                    suggester.setGazetteer(configured);
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage() + " (falling back to the Geocoding API)");
+            }
+            try {
+                if (new File(BUNDLED_GAZETTEER).isFile()) {
+                    suggester.setGazetteer(GazetteerIndex.open(new File(BUNDLED_GAZETTEER)));
+                }
+            } catch (IOException ignored) {
+                // suggestions then come from history and the API only
+            }
+        });
+    }
+
+    private static Action keyAction(Runnable r) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                r.run();
+            }
+        };
+    }
+
+    /** Local suggestions at once; the API only after the user pauses typing. */
+    private void onCityTyped() {
+        if (settingCityText) return;
+        suggester.cancel();
+        showSuggestions(suggester.suggestLocal(cityField.getText(), CitySuggester.DEFAULT_LIMIT));
+        suggestTimer.restart();
+    }
+
+    /** Debounce timer fired: ask the Geocoding API for prefixes we can't fill locally. */
+    private void requestRemoteSuggestions() {
+        String text = cityField.getText();
+        if (!suggester.needsRemote(text, CitySuggester.DEFAULT_LIMIT)) return;
+        suggester.suggestRemote(text, CitySuggester.DEFAULT_LIMIT)
+                 .whenComplete((found, err) -> SwingUtilities.invokeLater(() -> {
+                     // Failed, cancelled, or the user has typed on: drop it
+                     if (err == null && text.equals(cityField.getText())) {
+                         showSuggestions(found);
+                     }
+                 }));
+    }
+
+    private void showSuggestions(List<GazetteerIndex.Match> matches) {
+        suggestionModel.clear();
+        for (GazetteerIndex.Match m : matches) suggestionModel.addElement(m);
+        if (matches.isEmpty() || !cityField.isShowing()) {
+            suggestionPopup.setVisible(false);
+            return;
+        }
+        suggestionList.setVisibleRowCount(Math.min(matches.size(), 8));
+        Dimension rows = suggestionList.getPreferredScrollableViewportSize();
+        suggestionPopup.setPopupSize(Math.max(cityField.getWidth(), rows.width + 24), rows.height + 6);
+        if (!suggestionPopup.isVisible()) {
+            suggestionPopup.show(cityField, 0, cityField.getHeight());
+        }
+    }
+
+    private void hideSuggestions() {
+        suggestTimer.stop();
+        suggester.cancel();
+        suggestionPopup.setVisible(false);
+    }
+
+    private void moveSuggestion(int delta) {
+        int n = suggestionModel.size();
+        if (!suggestionPopup.isVisible() || n == 0) return;
+        int i = Math.floorMod(suggestionList.getSelectedIndex() + delta, n);
+        suggestionList.setSelectedIndex(i);
+        suggestionList.ensureIndexIsVisible(i);
+    }
+
+    /** Searches the picked place: its coordinates are cached under the label shown. */
+    private void chooseSuggestion(GazetteerIndex.Match m) {
+        String label = m.toString();
+        apiClient.getGeocodeCache().put(label, m.location);
+        settingCityText = true;
+        cityField.setText(label);
+        settingCityText = false;
+        onSearch(null);
+    }
+
+    /** Shows/hides the progress indicator and Cancel button. */
+    private void setLoading(boolean loading) {
+        progressBar.setVisible(loading);
+        cancelButton.setVisible(loading);
+    }
+
+    /** "Bangkok – 2025‑06‑05T18:15" → "Bangkok". */
+    private static String historyCity(String entry) {
+        int sep = entry.lastIndexOf(" – ");
+        return sep < 0 ? entry : entry.substring(0, sep);
+    }
+
+    /** Swaps in a background refresh of the city currently shown (EDT only). */
+    private void onBackgroundRefresh(WeatherResult r) {
+        if (r.isSuccess() && !r.stale && lastByCity.containsKey(r.data.cityName)) {
+            lastByCity.put(r.data.cityName, r.data);
+        }
+        if (lastData == null || !r.isSuccess() || r.stale || pendingFetch != null || viewingRecorded
+                || !r.data.cityName.equals(lastData.cityName)) {
+            return;
+        }
+        displayWeather(r.data);
+        if (!"Celsius".equals(unitBox.getSelectedItem())) {
+            onUnitChange(); // re‑apply the selected units
+        }
+    }
+
+    /** Displays freshly fetched data (EDT only). */
+    private void showWeather(WeatherData data) {
+        selectUnits(0); // Reset to Celsius
+        viewingRecorded = false;
+        displayWeather(data);
+        suggester.addKnown(data.cityName, data.latitude, data.longitude);
+        lastByCity.remove(data.cityName);
+        lastByCity.put(data.cityName, data); // most recent last
+
+        // Append to history list: "City – 2025‑06‑05T18:00"
+        historyModel.addElement(data.cityName + " – " + data.currentTime);
+    }
+
+    /** Appends a fresh result to the observation store (any thread). */
+    private void recordObservation(WeatherResult r) {
+        ObservationStore store = observations;
+        if (store == null || r == null || !r.isSuccess() || r.stale) return;
+        try {
+            store.append(r.data);
+        } catch (IOException | RuntimeException ignored) {
+            // history is best effort; the lookup itself succeeded
+        }
+    }
+
+    private static File storeDir() {
+        String dir = System.getProperty("weather.store.dir");
+        if (dir != null && !dir.isEmpty()) return new File(dir);
+        return new File(System.getProperty("user.home"), ".weather-app" + File.separator + "observations");
+    }
+
+    /** Shows the recorded observation behind a history entry, if stored. */
+    private void reopenHistoryEntry(String entry) {
+        ObservationStore store = observations;
+        int sep = entry.lastIndexOf(" – ");
+        if (store == null || sep < 0) return;
+        String city = entry.substring(0, sep);
+        String time = entry.substring(sep + 3);
+        // Local time ± the widest UTC offsets brackets the stored epoch
+        long approx = ForecastSeries.parseLocalMinutes(time) * 60;
+        for (ObservationStore.Observation o : store.query(city, approx - 15 * 3600, approx + 15 * 3600)) {
+            if (o.localTime().equals(time)) {
+                showRecorded(o);
+                return;
+            }
+        }
+        showPastObservations();
+    }
+
+    /** Lets the user pick one of the last 30 days of the selected (or shown) city. */
+    private void showPastObservations() {
+        ObservationStore store = observations;
+        String selected = historyList.getSelectedValue();
+        String city = selected != null ? historyCity(selected) : lastData != null ? lastData.cityName : null;
+        if (store == null || city == null) {
+            JOptionPane.showMessageDialog(this, "Search for a city or select one in the history first.",
+                    "Past observations", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        List<ObservationStore.Observation> past = store.recent(city, 30);
+        if (past.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No recorded observations for \"" + city + "\" yet.",
+                    "Past observations", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        DefaultListModel<ObservationStore.Observation> model = new DefaultListModel<>();
+        for (int i = past.size() - 1; i >= 0; i--) model.addElement(past.get(i)); // newest first
+        JList<ObservationStore.Observation> list = new JList<>(model);
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(15);
+        int choice = JOptionPane.showConfirmDialog(this, new JScrollPane(list),
+                "Past 30 days – " + city, JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION && list.getSelectedValue() != null) {
+            showRecorded(list.getSelectedValue());
+        }
+    }
+
+    /** Displays a stored observation (current conditions only) without touching history. */
+    private void showRecorded(ObservationStore.Observation o) {
+        cancelPendingFetch();
+        selectUnits(0);
+        displayWeather(o.toWeatherData());
+        viewingRecorded = true;
+        lblTime.setText("Time: " + o.localTime() + " (recorded)");
+        hourlyChart.clear("(no forecast recorded)");
+    }
+
+    /** Fills every weather field from {@code data}, in Celsius (EDT only). */
+    private void displayWeather(WeatherData data) {
         lastData = data;
         showingCelsius = true;
-        unitBox.setSelectedIndex(0); // Reset to Celsius
 
         // Display fields:
         lblLocation.setText("City: " + data.cityName);
@@ -188,20 +745,21 @@ public class WeatherApp extends JFrame {
         lblWind.setText(String.format("Wind Speed: %.1f km/h", data.windSpeedKmh));
         lblCondition.setText("Condition: " + interpretWeatherCode(data.weatherCode));
 
-        // Forecast: next 3 hourly entries
-        StringBuilder sb = new StringBuilder();
-        for (WeatherData.ForecastEntry fe : data.forecastList) {
-            sb.append(String.format("%s → %.1f °C%n", fe.time, fe.tempC));
-        }
-        forecastArea.setText(sb.toString());
-
-        // Append to history list: "City – 2025‑06‑05T18:00"
-        historyModel.addElement(data.cityName + " – " + data.currentTime);
+        // Forecast: hourly chart, in Celsius like the fields above
+        hourlyChart.setFahrenheit(false);
+        hourlyChart.setForecast(data);
 
         // Update dynamic background based on data.currentTime’s hour
         applyDynamicBackgroundForHour(data.currentTime);
     }
 
+    /** Selects units without counting it as the user's choice (EDT only). */
+    private void selectUnits(int index) {
+        settingUnits = true;
+        unitBox.setSelectedIndex(index);
+        settingUnits = false;
+    }
+
     /** Called when the user changes units (Celsius ↔ Fahrenheit). */
     private void onUnitChange() {
         if (lastData == null) return;
@@ -211,6 +769,7 @@ public class WeatherApp extends JFrame {
             // Back to Celsius
             lblTemperature.setText(String.format("Temperature: %.1f °C", lastData.temperatureC));
             lblWind.setText(String.format("Wind Speed: %.1f km/h", lastData.windSpeedKmh));
+            hourlyChart.setFahrenheit(false);
             showingCelsius = true;
         } else if (unit.equals("Fahrenheit") && showingCelsius) {
             // Convert
@@ -218,16 +777,20 @@ public class WeatherApp extends JFrame {
             double windMph = lastData.windSpeedKmh * 0.621371;
             lblTemperature.setText(String.format("Temperature: %.1f °F", tempF));
             lblWind.setText(String.format("Wind Speed: %.1f mph", windMph));
+            hourlyChart.setFahrenheit(true);
             showingCelsius = false;
         }
     }
 
     /** Resets all UI fields and restores default background. */
     private void resetUI() {
+        cancelPendingFetch();
+        hideSuggestions();
+        viewingRecorded = false;
         cityField.setText("");
         lastData = null;
         showingCelsius = true;
-        unitBox.setSelectedIndex(0);
+        selectUnits(0);
 
         lblLocation.setText("City: N/A");
         lblTime.setText("Time: N/A");
@@ -237,12 +800,11 @@ public class WeatherApp extends JFrame {
         lblWind.setText("Wind Speed: N/A");
         lblCondition.setText("Condition: N/A");
 
-        forecastArea.setText("");
+        hourlyChart.clear(null);
         // **We do NOT clear history**; only clear the current display.
 
         // Remove background image (back to default)
-        backgroundPanel.setBackgroundImage(null);
-        backgroundPanel.repaint();
+        backgroundPanel.setPeriod(null);
     }
 
     /**
@@ -253,38 +815,18 @@ public class WeatherApp extends JFrame {
      *   08–17 → day
      *   18–19 → sunset
      *   else  → night
+     * The images are already decoded (or being decoded) in the background;
+     * a missing image leaves the default background.
      */
     private void applyDynamicBackgroundForHour(String isoDateTime) {
         try {
             // isoDateTime looks like "2025-06-05T18:00"
             String hourStr = isoDateTime.substring(11, 13);
             int hour = Integer.parseInt(hourStr);
-
-            String folder = "images";
-            String filename;
-            if (hour >= 5 && hour <= 7) {
-                filename = "sunrise.jpg";
-            } else if (hour >= 8 && hour <= 17) {
-                filename = "day.jpg";
-            } else if (hour >= 18 && hour <= 19) {
-                filename = "sunset.jpg";
-            } else {
-                filename = "night.jpg";
-            }
-
-            File imageFile = new File(folder + File.separator + filename);
-            if (!imageFile.exists()) {
-                // If user hasn’t provided images yet, just leave default.
-                backgroundPanel.setBackgroundImage(null);
-            } else {
-                BufferedImage img = ImageIO.read(imageFile);
-                backgroundPanel.setBackgroundImage(img);
-            }
-            backgroundPanel.repaint();
+            backgroundPanel.setPeriod(BackgroundImages.Period.forHour(hour));
         } catch (Exception ex) {
-            // If parsing fails or image not found, revert to default
-            backgroundPanel.setBackgroundImage(null);
-            backgroundPanel.repaint();
+            // If parsing fails, revert to default
+            backgroundPanel.setPeriod(null);
         }
     }
 
@@ -306,6 +848,11 @@ public class WeatherApp extends JFrame {
 
     /** Entry point. */
     public static void main(String[] args) {
+        // Decode the backgrounds and read the last‑known state while the
+        // look‑and‑feel and window are set up
+        BACKGROUNDS.preload();
+        loadSnapshot();
+
         // Use system look‑and‑feel for Swing
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -315,27 +862,88 @@ public class WeatherApp extends JFrame {
     }
 
    
-    // BackgroundPanel: a JPanel that, if given a BufferedImage, draws it stretched
+    // BackgroundPanel: a JPanel that, if given a period, draws its image stretched
     // to fill the panel. Otherwise, it uses the default background.
+    // The stretched copy is rendered once per panel size, in device pixels (so
+    // HiDPI screens get a 1:1 copy), and every repaint is a plain blit of it.
+    // A new size or screen scale drops the copies; while the window is being
+    // resized the old copy is stretched instead, and re‑rendered once it settles.
     private static class BackgroundPanel extends JPanel {
-        private BufferedImage backgroundImage = null;
+        private static final int RESIZE_SETTLE_MILLIS = 150;
+
+        private final BackgroundImages images;
+        private BackgroundImages.Period period = null;
+
+        private final Map<BackgroundImages.Period, BufferedImage> scaled =
+                new EnumMap<>(BackgroundImages.Period.class);
+        private int scaledWidth, scaledHeight;
+        private final Timer resizeSettle = new Timer(RESIZE_SETTLE_MILLIS, e -> repaint());
+        private Runnable firstPaint;
+
+        BackgroundPanel(BackgroundImages images) {
+            this.images = images;
+            resizeSettle.setRepeats(false);
+            addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentResized(ComponentEvent e) {
+                    resizeSettle.restart();
+                }
+            });
+        }
 
-        public void setBackgroundImage(BufferedImage img) {
-            this.backgroundImage = img;
+        /** Runs {@code r} (later, on the EDT) once this panel has painted for the first time. */
+        void onFirstPaint(Runnable r) {
+            this.firstPaint = r;
+        }
+
+        /** Shows the background for {@code period}; null → default background. */
+        public void setPeriod(BackgroundImages.Period period) {
+            if (this.period != period) {
+                this.period = period;
+                repaint();
+            }
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (backgroundImage != null) {
-                // Draw the image scaled to fit this panel’s size
-                g.drawImage(
-                    backgroundImage,
-                    0, 0,
-                    getWidth(), getHeight(),
-                    null
-                );
+            BufferedImage img = period == null ? null : scaledImage(period, ((Graphics2D) g).getTransform());
+            if (img != null) {
+                // device size == image size (except mid‑resize), so this is a copy, not a rescale
+                g.drawImage(img, 0, 0, getWidth(), getHeight(), null);
+            }
+            if (firstPaint != null) {
+                SwingUtilities.invokeLater(firstPaint);
+                firstPaint = null;
+            }
+        }
+
+        /** The image of {@code p} at this panel's device size; null if not decoded (yet). */
+        private BufferedImage scaledImage(BackgroundImages.Period p, AffineTransform tx) {
+            int w = (int) Math.ceil(getWidth() * tx.getScaleX());
+            int h = (int) Math.ceil(getHeight() * tx.getScaleY());
+            if (w <= 0 || h <= 0) {
+                return null;
+            }
+            if (w != scaledWidth || h != scaledHeight) {
+                BufferedImage previous = scaled.get(p);
+                if (previous != null && resizeSettle.isRunning()) {
+                    return previous; // mid‑resize: a quick stretch beats a full re‑render per step
+                }
+                scaled.clear();
+                scaledWidth = w;
+                scaledHeight = h;
+            }
+            BufferedImage img = scaled.get(p);
+            if (img == null) {
+                BufferedImage src = images.get(p);
+                if (src == null) {
+                    return null;
+                }
+                img = BackgroundImages.scaledCopy(src, getGraphicsConfiguration(), w, h);
+                scaled.put(p, img);
             }
+            return img;
         }
     }
 }
@@ -0,0 +1,289 @@
+// src/WeatherBatch.java
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.json.JSONObject;
+
+/**
+ * Batch lookups for nightly jobs: reads one city per line and streams one
+ * result per line as JSONL or CSV, in completion order.
+ *
+ *   • Input is read in chunks of {@link WeatherAPIClient#FORECAST_BATCH_SIZE}
+ *     lines; each chunk is one {@link WeatherAPIClient#fetchWeatherForCities}
+ *     call (parallel geocoding + one multi‑location forecast request).
+ *   • At most {@code parallelism} chunks are in flight; the reader blocks
+ *     until one finishes, so memory stays flat however long the input is.
+ *   • Each chunk's results are written and flushed as soon as it completes.
+ *   • Failures go to a separate error report (line, city, kind, message).
+ *   • Progress and throughput are printed to {@code progress} every few seconds.
+ *
+ * Blank lines and lines starting with '#' are skipped. Every other line
+ * gets exactly one output record, carrying its input line number.
+ */
+public class WeatherBatch {
+    public enum Format { JSONL, CSV }
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    private static final long PROGRESS_INTERVAL_SECONDS = 2;
+
+    private static final String CSV_HEADER =
+        "line,query,status,city,latitude,longitude,time,temperature_2m,relative_humidity_2m,"
+      + "precipitation,wind_speed_10m,weather_code,error";
+
+    /** Counts of one run. */
+    public static class Summary {
+        public final long total;
+        public final long ok;
+        public final long stale;
+        public final long failed;
+        public final long elapsedNanos;
+        private final long[] failedByKind;
+
+        Summary(long total, long ok, long stale, long failed, long elapsedNanos, long[] failedByKind) {
+            this.total = total;
+            this.ok = ok;
+            this.stale = stale;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.failedByKind = failedByKind;
+        }
+
+        public long failed(WeatherResult.ErrorKind kind) {
+            return failedByKind[kind.ordinal()];
+        }
+
+        public double citiesPerSecond() {
+            return elapsedNanos == 0 ? 0 : total * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "%d cities in %.1f s (%.1f cities/s): ok %d, stale %d, failed %d",
+                    total, elapsedNanos / 1e9, citiesPerSecond(), ok, stale, failed));
+            for (WeatherResult.ErrorKind k : WeatherResult.ErrorKind.values()) {
+                if (failed(k) > 0) sb.append(' ').append(k).append('=').append(failed(k));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final WeatherAPIClient client;
+    private final Format format;
+    private final int parallelism;
+
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLongArray failedByKind = new AtomicLongArray(WeatherResult.ErrorKind.values().length);
+    /** First failure writing output; stops the run. */
+    private volatile IOException writeError;
+
+    public WeatherBatch(WeatherAPIClient client, Format format, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be > 0");
+        }
+        this.client = client;
+        this.format = format;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Processes every line of {@code in}. Results go to {@code out}, failures
+     * to {@code errors}; both are flushed per chunk and left open.
+     * Call once per instance.
+     */
+    public Summary run(BufferedReader in, Writer out, Writer errors, PrintStream progress)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService workers = WeatherAPIClient.newWorkerExecutor("weather-batch");
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "weather-batch-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> progress.println(progressLine(start)),
+                PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        try {
+            if (format == Format.CSV) {
+                synchronized (out) {
+                    out.write(CSV_HEADER);
+                    out.write('\n');
+                }
+            }
+
+            int chunkSize = WeatherAPIClient.FORECAST_BATCH_SIZE;
+            List<String> cities = new ArrayList<>(chunkSize);
+            long[] lines = new long[chunkSize];
+            long lineNo = 0;
+            String line;
+            while ((line = in.readLine()) != null && writeError == null) {
+                lineNo++;
+                String city = line.trim();
+                if (city.isEmpty() || city.startsWith("#")) continue;
+                lines[cities.size()] = lineNo;
+                cities.add(city);
+                if (cities.size() == chunkSize) {
+                    submit(workers, inFlight, cities, lines, out, errors);
+                    cities = new ArrayList<>(chunkSize);
+                    lines = new long[chunkSize];
+                }
+            }
+            if (!cities.isEmpty()) {
+                submit(workers, inFlight, cities, lines, out, errors);
+            }
+            inFlight.acquire(parallelism); // wait for the last chunks
+            if (writeError != null) {
+                throw writeError;
+            }
+        } finally {
+            ticker.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        long[] byKind = new long[failedByKind.length()];
+        for (int i = 0; i < byKind.length; i++) byKind[i] = failedByKind.get(i);
+        return new Summary(total.get(), ok.get(), stale.get(), failed.get(), System.nanoTime() - start, byKind);
+    }
+
+    private String progressLine(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return String.format(Locale.ROOT, "... %d done (ok %d, stale %d, failed %d) - %.1f cities/s",
+                total.get(), ok.get(), stale.get(), failed.get(), seconds == 0 ? 0 : total.get() / seconds);
+    }
+
+    /** Hands a chunk to a worker, first waiting for a free slot. */
+    private void submit(ExecutorService workers, Semaphore inFlight, List<String> cities, long[] lines,
+                        Writer out, Writer errors) throws InterruptedException {
+        inFlight.acquire();
+        workers.execute(() -> {
+            try {
+                processChunk(cities, lines, out, errors);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void processChunk(List<String> cities, long[] lines, Writer out, Writer errors) {
+        Map<String, WeatherResult> results;
+        try {
+            results = client.fetchWeatherForCities(cities);
+        } catch (RuntimeException e) {
+            results = null;
+        }
+
+        StringBuilder outBuf = new StringBuilder(cities.size() * 256);
+        StringBuilder errBuf = new StringBuilder();
+        for (int i = 0; i < cities.size(); i++) {
+            String city = cities.get(i);
+            WeatherResult r = results != null ? results.get(city) : null;
+            if (r == null) {
+                r = WeatherResult.failure(city, WeatherResult.ErrorKind.INTERNAL, "Batch chunk failed");
+            }
+            count(r);
+            if (format == Format.JSONL) {
+                outBuf.append(jsonLine(lines[i], city, r)).append('\n');
+            } else {
+                appendCsv(outBuf, lines[i], city, r);
+            }
+            if (!r.isSuccess()) {
+                errBuf.append(lines[i]).append('\t').append(city).append('\t')
+                      .append(r.kind).append('\t').append(r.error).append('\n');
+            }
+        }
+        try {
+            synchronized (out) {
+                out.write(outBuf.toString());
+                out.flush();
+            }
+            if (errBuf.length() > 0) {
+                synchronized (errors) {
+                    errors.write(errBuf.toString());
+                    errors.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (writeError == null) writeError = e;
+        }
+    }
+
+    private void count(WeatherResult r) {
+        total.incrementAndGet();
+        if (!r.isSuccess()) {
+            failed.incrementAndGet();
+            failedByKind.incrementAndGet(r.kind.ordinal());
+        } else if (r.stale) {
+            stale.incrementAndGet();
+        } else {
+            ok.incrementAndGet();
+        }
+    }
+
+    private static String jsonLine(long line, String query, WeatherResult r) {
+        JSONObject o = new JSONObject();
+        o.put("line", line);
+        o.put("query", query);
+        o.put("status", status(r));
+        if (r.isSuccess()) {
+            o.put("data", r.data.toJson(false));
+        }
+        if (r.kind != null) {
+            o.put("kind", r.kind.name());
+            o.put("error", r.error);
+        }
+        return o.toString();
+    }
+
+    private static void appendCsv(StringBuilder sb, long line, String query, WeatherResult r) {
+        sb.append(line).append(',');
+        csv(sb, query).append(',').append(status(r)).append(',');
+        WeatherData d = r.data;
+        if (d != null) {
+            csv(sb, d.cityName).append(',');
+            sb.append(d.latitude).append(',').append(d.longitude).append(',');
+            csv(sb, d.currentTime).append(',');
+            num(sb, d.temperatureC).append(',');
+            num(sb, d.relativeHumidityPercent).append(',');
+            num(sb, d.precipitationMM).append(',');
+            num(sb, d.windSpeedKmh).append(',');
+            sb.append(d.weatherCode).append(',');
+        } else {
+            sb.append(",,,,,,,,,");
+        }
+        csv(sb, r.error).append('\n');
+    }
+
+    private static String status(WeatherResult r) {
+        return !r.isSuccess() ? "error" : r.stale ? "stale" : "ok";
+    }
+
+    /** RFC 4180 quoting, only when needed. */
+    private static StringBuilder csv(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return sb.append(value);
+        }
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static StringBuilder num(StringBuilder sb, double v) {
+        return Double.isNaN(v) ? sb : sb.append(v);
+    }
+}
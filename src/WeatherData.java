@@ -2,6 +2,8 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
 /**
  * A lightweight model class that holds:
@@ -14,6 +16,8 @@ import java.util.List;
  *   • windSpeedKmh            – km/h
  *   • weatherCode             – from Open-Meteo (int)
  *   • A short forecast (next 3 × 1‑hour slots): list of (time, tempC)
+ *   • The full hourly / daily series as primitive columns ({@link ForecastSeries}),
+ *     null when the query didn't request them
  */
 public class WeatherData {
     public String cityName;
@@ -29,6 +33,10 @@ public class WeatherData {
 
     public List<ForecastEntry> forecastList = new ArrayList<>();
 
+    public int utcOffsetSeconds;     // local clock offset of the city, e.g. 25200 for UTC+7
+    public ForecastSeries hourly;
+    public ForecastSeries daily;
+
     /** One forecast entry: localDateTime + tempC. */
     public static class ForecastEntry {
         public String time;   // e.g. "2025-06-05T19:00"
@@ -39,4 +47,110 @@ public class WeatherData {
             this.tempC = tempC;
         }
     }
+
+    /**
+     * Index of the hourly slot containing {@link #currentTime}, computed from
+     * the first hourly timestamp (O(1)). 0 if there is no hourly series or
+     * "now" lies outside it.
+     */
+    public int currentHourIndex() {
+        if (hourly == null || hourly.size() == 0 || currentTime == null) {
+            return 0;
+        }
+        long nowMinutes = ForecastSeries.parseLocalMinutes(currentTime);
+        long firstMinutes = Math.floorDiv(hourly.epochSecond(0) + hourly.utcOffsetSeconds, 60L);
+        long idx = Math.floorDiv(nowMinutes - firstMinutes, 60L);
+        return (idx >= 0 && idx < hourly.size()) ? (int) idx : 0;
+    }
+
+    /**
+     * Rebuilds {@link #forecastList} as a view of the hourly series: the next
+     * 3 entries after the current hour (needs the temperature_2m column).
+     */
+    void deriveShortForecast() {
+        forecastList.clear();
+        if (hourly == null || hourly.columnIndex("temperature_2m") < 0) {
+            return;
+        }
+        for (int i = currentHourIndex() + 1; i < hourly.size() && forecastList.size() < 3; i++) {
+            forecastList.add(hourly.entry(i));
+        }
+    }
+
+    /**
+     * Shallow copy that reports {@code loc}'s name and coordinates; the
+     * forecast itself (list and series) is shared, so treat it as read‑only.
+     * Used when one forecast serves several nearby places.
+     */
+    WeatherData atLocation(GeoLocation loc) {
+        WeatherData d = new WeatherData();
+        d.cityName = loc.name;
+        d.latitude = loc.latitude;
+        d.longitude = loc.longitude;
+        d.currentTime = currentTime;
+        d.temperatureC = temperatureC;
+        d.relativeHumidityPercent = relativeHumidityPercent;
+        d.precipitationMM = precipitationMM;
+        d.windSpeedKmh = windSpeedKmh;
+        d.weatherCode = weatherCode;
+        d.forecastList = forecastList;
+        d.utcOffsetSeconds = utcOffsetSeconds;
+        d.hourly = hourly;
+        d.daily = daily;
+        return d;
+    }
+
+    /**
+     * JSON form used by WeatherServer and the batch CLI. The hourly/daily
+     * series are included column by column when {@code includeSeries} is set.
+     */
+    public JSONObject toJson(boolean includeSeries) {
+        JSONObject o = new JSONObject();
+        o.put("city", cityName);
+        o.put("latitude", latitude);
+        o.put("longitude", longitude);
+        o.put("time", currentTime);
+        o.put("utc_offset_seconds", utcOffsetSeconds);
+        putNumber(o, "temperature_2m", temperatureC);
+        putNumber(o, "relative_humidity_2m", relativeHumidityPercent);
+        putNumber(o, "precipitation", precipitationMM);
+        putNumber(o, "wind_speed_10m", windSpeedKmh);
+        o.put("weather_code", weatherCode);
+
+        JSONArray forecast = new JSONArray();
+        for (ForecastEntry fe : forecastList) {
+            JSONObject e = new JSONObject();
+            e.put("time", fe.time);
+            putNumber(e, "temperature_2m", fe.tempC);
+            forecast.put(e);
+        }
+        o.put("forecast", forecast);
+
+        if (includeSeries) {
+            if (hourly != null) o.put("hourly", seriesJson(hourly));
+            if (daily != null) o.put("daily", seriesJson(daily));
+        }
+        return o;
+    }
+
+    private static JSONObject seriesJson(ForecastSeries s) {
+        JSONObject o = new JSONObject();
+        JSONArray times = new JSONArray();
+        for (int i = 0; i < s.size(); i++) times.put(s.epochSecond(i));
+        o.put("time", times);
+        for (int c = 0; c < s.variables().size(); c++) {
+            JSONArray col = new JSONArray();
+            for (int i = 0; i < s.size(); i++) {
+                double v = s.value(c, i);
+                col.put(Double.isNaN(v) ? JSONObject.NULL : (Object) v);
+            }
+            o.put(s.variables().get(c), col);
+        }
+        return o;
+    }
+
+    /** org.json rejects NaN, so missing values are written as null. */
+    private static void putNumber(JSONObject o, String key, double v) {
+        o.put(key, Double.isNaN(v) ? JSONObject.NULL : (Object) v);
+    }
 }
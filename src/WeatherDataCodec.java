@@ -0,0 +1,473 @@
+// src/WeatherDataCodec.java
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary form of {@link WeatherData}, read and written
+ * directly on {@link ByteBuffer}s (heap or direct) — for caches and
+ * process‑to‑process transfer where JSON is too big and too slow.
+ *
+ *   • Record: magic "WD", version, flags, then city, coordinates, current
+ *     conditions and the optional hourly / daily series.
+ *   • Strings are length‑prefixed UTF‑8, encoded char by char (no
+ *     temporary byte arrays).
+ *   • Series: the time axis is a start plus a fixed step (or varint deltas
+ *     if irregular). A column whose values all have at most one decimal —
+ *     everything Open‑Meteo sends — is stored as zig‑zag varint deltas of
+ *     value × 10, typically one byte per value. Any other column is stored as
+ *     raw doubles. Both are lossless, NaN included.
+ *   • The 3‑hour short forecast is rebuilt from the hourly series on decode
+ *     when it can be, and stored only otherwise.
+ *   • Batch: magic "WB", version, an interned string table (city and
+ *     variable names, each stored once), then the records referring to it by
+ *     index. Decoded records share one String per distinct name.
+ *
+ * Everything is big endian regardless of the buffer's byte order. Decoding
+ * rejects unknown versions and flags with {@link IllegalArgumentException};
+ * a truncated buffer throws {@link BufferUnderflowException}.
+ */
+public final class WeatherDataCodec {
+    public static final int VERSION = 1;
+    /** Content type used when serving the binary form over HTTP. */
+    public static final String CONTENT_TYPE = "application/x-weather-data";
+
+    private static final short RECORD_MAGIC = 0x5744; // "WD"
+    private static final short BATCH_MAGIC = 0x5742;  // "WB"
+
+    private static final int HAS_HOURLY = 1;
+    private static final int HAS_DAILY = 2;
+    private static final int HAS_FORECAST_LIST = 4;
+    private static final int KNOWN_FLAGS = HAS_HOURLY | HAS_DAILY | HAS_FORECAST_LIST;
+
+    private static final int TIMES_UNIFORM = 0;
+    private static final int TIMES_DELTA = 1;
+    private static final int COLUMN_RAW = 0;
+    private static final int COLUMN_DECIMAL = 1;
+    /** Largest |value × 10| stored as varint deltas (keeps deltas within a long). */
+    private static final long MAX_SCALED = 1L << 50;
+    /** Sanity cap on decoded series length (a uniform time axis takes no bytes per entry). */
+    private static final int MAX_SERIES_LENGTH = 1 << 24;
+
+    private WeatherDataCodec() {}
+
+    // ------------------------------------------------------------ single record
+
+    /** Writes {@code data} at {@code out}'s position; throws BufferOverflowException if it doesn't fit. */
+    public static void encode(WeatherData data, ByteBuffer out) {
+        ByteOrder order = out.order();
+        out.order(ByteOrder.BIG_ENDIAN);
+        try {
+            out.putShort(RECORD_MAGIC).put((byte) VERSION);
+            writeRecord(data, out, null);
+        } finally {
+            out.order(order);
+        }
+    }
+
+    /** Reads one record written by {@link #encode(WeatherData, ByteBuffer)}. */
+    public static WeatherData decode(ByteBuffer in) {
+        ByteOrder order = in.order();
+        in.order(ByteOrder.BIG_ENDIAN);
+        try {
+            checkHeader(in, RECORD_MAGIC);
+            return readRecord(in, null);
+        } finally {
+            in.order(order);
+        }
+    }
+
+    /** The record as an exactly sized array. */
+    public static byte[] toBytes(WeatherData data) {
+        ByteBuffer buf = ByteBuffer.allocate(maxEncodedSize(data));
+        encode(data, buf);
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    /** Upper bound of {@link #encode}'s output, for sizing buffers. */
+    public static int maxEncodedSize(WeatherData d) {
+        long n = 3 + recordBound(d, false);
+        if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("WeatherData too large to encode");
+        return (int) n;
+    }
+
+    // ------------------------------------------------------------------ batch
+
+    /** Writes all records with a shared string table. */
+    public static void encodeBatch(Collection<WeatherData> batch, ByteBuffer out) {
+        Map<String, Integer> table = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (WeatherData d : batch) {
+            intern(d.cityName, table, strings);
+            if (d.hourly != null) internNames(d.hourly, table, strings);
+            if (d.daily != null) internNames(d.daily, table, strings);
+        }
+        ByteOrder order = out.order();
+        out.order(ByteOrder.BIG_ENDIAN);
+        try {
+            out.putShort(BATCH_MAGIC).put((byte) VERSION);
+            writeVarint(out, strings.size());
+            for (String s : strings) writeUtf8(out, s);
+            writeVarint(out, batch.size());
+            for (WeatherData d : batch) writeRecord(d, out, table);
+        } finally {
+            out.order(order);
+        }
+    }
+
+    public static List<WeatherData> decodeBatch(ByteBuffer in) {
+        ByteOrder order = in.order();
+        in.order(ByteOrder.BIG_ENDIAN);
+        try {
+            checkHeader(in, BATCH_MAGIC);
+            String[] strings = new String[checkedCount(in)];
+            for (int i = 0; i < strings.length; i++) strings[i] = readUtf8(in);
+            int count = checkedCount(in);
+            List<WeatherData> out = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) out.add(readRecord(in, strings));
+            return out;
+        } finally {
+            in.order(order);
+        }
+    }
+
+    public static byte[] toBytes(Collection<WeatherData> batch) {
+        long n = 3 + 5L;
+        for (WeatherData d : batch) {
+            n += recordBound(d, true);
+            n += utf8Bound(d.cityName);
+            if (d.hourly != null) for (String v : d.hourly.variables()) n += utf8Bound(v);
+            if (d.daily != null) for (String v : d.daily.variables()) n += utf8Bound(v);
+        }
+        if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("Batch too large to encode");
+        ByteBuffer buf = ByteBuffer.allocate((int) n);
+        encodeBatch(batch, buf);
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    // ---------------------------------------------------------------- records
+
+    private static void writeRecord(WeatherData d, ByteBuffer out, Map<String, Integer> table) {
+        boolean derived = d.hourly != null && d.hourly.columnIndex("temperature_2m") >= 0;
+        int flags = (d.hourly != null ? HAS_HOURLY : 0)
+                  | (d.daily != null ? HAS_DAILY : 0)
+                  | (!derived && !d.forecastList.isEmpty() ? HAS_FORECAST_LIST : 0);
+        out.put((byte) flags);
+        writeString(out, d.cityName, table);
+        out.putDouble(d.latitude).putDouble(d.longitude);
+        writeUtf8(out, d.currentTime);
+        writeVarint(out, zigzag(d.utcOffsetSeconds));
+        out.putDouble(d.temperatureC)
+           .putDouble(d.relativeHumidityPercent)
+           .putDouble(d.precipitationMM)
+           .putDouble(d.windSpeedKmh);
+        writeVarint(out, zigzag(d.weatherCode));
+        if ((flags & HAS_FORECAST_LIST) != 0) {
+            writeVarint(out, d.forecastList.size());
+            for (WeatherData.ForecastEntry fe : d.forecastList) {
+                writeUtf8(out, fe.time);
+                out.putDouble(fe.tempC);
+            }
+        }
+        if (d.hourly != null) writeSeries(out, d.hourly, table);
+        if (d.daily != null) writeSeries(out, d.daily, table);
+    }
+
+    private static WeatherData readRecord(ByteBuffer in, String[] table) {
+        int flags = in.get() & 0xFF;
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unknown WeatherData flags: 0x" + Integer.toHexString(flags));
+        }
+        WeatherData d = new WeatherData();
+        d.cityName = readString(in, table);
+        d.latitude = in.getDouble();
+        d.longitude = in.getDouble();
+        d.currentTime = readUtf8(in);
+        d.utcOffsetSeconds = (int) unzigzag(readVarint(in));
+        d.temperatureC = in.getDouble();
+        d.relativeHumidityPercent = in.getDouble();
+        d.precipitationMM = in.getDouble();
+        d.windSpeedKmh = in.getDouble();
+        d.weatherCode = (int) unzigzag(readVarint(in));
+        if ((flags & HAS_FORECAST_LIST) != 0) {
+            int n = checkedCount(in);
+            for (int i = 0; i < n; i++) {
+                String time = readUtf8(in);
+                d.forecastList.add(new WeatherData.ForecastEntry(time, in.getDouble()));
+            }
+        }
+        if ((flags & HAS_HOURLY) != 0) d.hourly = readSeries(in, table);
+        if ((flags & HAS_DAILY) != 0) d.daily = readSeries(in, table);
+        if ((flags & HAS_FORECAST_LIST) == 0) d.deriveShortForecast();
+        return d;
+    }
+
+    /** Worst case: every varint at full length, every column raw. */
+    private static long recordBound(WeatherData d, boolean batched) {
+        long n = 1 + (batched ? 5 : utf8Bound(d.cityName)) + 16 + utf8Bound(d.currentTime) + 5 + 32 + 5;
+        n += 5; // forecast list length
+        for (WeatherData.ForecastEntry fe : d.forecastList) n += utf8Bound(fe.time) + 8;
+        n += seriesBound(d.hourly, batched) + seriesBound(d.daily, batched);
+        return n;
+    }
+
+    // ----------------------------------------------------------------- series
+
+    private static void writeSeries(ByteBuffer out, ForecastSeries s, Map<String, Integer> table) {
+        int n = s.size();
+        long[] times = s.timeArray();
+        int off = s.arrayOffset();
+        writeVarint(out, zigzag(s.utcOffsetSeconds));
+        writeVarint(out, n);
+        List<String> names = s.variables();
+        writeVarint(out, names.size());
+
+        long step = n > 1 ? times[off + 1] - times[off] : 0;
+        boolean uniform = true;
+        for (int i = 2; i < n && uniform; i++) {
+            uniform = times[off + i] - times[off + i - 1] == step;
+        }
+        out.put((byte) (uniform ? TIMES_UNIFORM : TIMES_DELTA));
+        if (n > 0) writeVarint(out, zigzag(times[off]));
+        if (uniform) {
+            writeVarint(out, zigzag(step));
+        } else {
+            for (int i = 1; i < n; i++) writeVarint(out, zigzag(times[off + i] - times[off + i - 1]));
+        }
+
+        for (int c = 0; c < names.size(); c++) {
+            writeString(out, names.get(c), table);
+            double[] col = s.columnArray(c);
+            if (isDecimal(col, off, n)) {
+                out.put((byte) COLUMN_DECIMAL);
+                long prev = 0;
+                for (int i = off; i < off + n; i++) {
+                    double v = col[i];
+                    if (Double.isNaN(v)) {
+                        writeVarint(out, 0);
+                    } else {
+                        long scaled = Math.round(v * 10);
+                        writeVarint(out, zigzag(scaled - prev) + 1);
+                        prev = scaled;
+                    }
+                }
+            } else {
+                out.put((byte) COLUMN_RAW);
+                for (int i = off; i < off + n; i++) out.putDouble(col[i]);
+            }
+        }
+    }
+
+    private static ForecastSeries readSeries(ByteBuffer in, String[] table) {
+        int utcOffset = (int) unzigzag(readVarint(in));
+        long length = readVarint(in);
+        if (length < 0 || length > MAX_SERIES_LENGTH) {
+            throw new IllegalArgumentException("Implausible series length " + length);
+        }
+        int n = (int) length;
+        int columns = checkedCount(in);
+
+        long[] times = new long[n];
+        int timeEncoding = in.get();
+        if (n > 0) times[0] = unzigzag(readVarint(in));
+        if (timeEncoding == TIMES_UNIFORM) {
+            long step = unzigzag(readVarint(in));
+            for (int i = 1; i < n; i++) times[i] = times[i - 1] + step;
+        } else if (timeEncoding == TIMES_DELTA) {
+            for (int i = 1; i < n; i++) times[i] = times[i - 1] + unzigzag(readVarint(in));
+        } else {
+            throw new IllegalArgumentException("Unknown time encoding " + timeEncoding);
+        }
+
+        String[] names = new String[columns];
+        double[][] cols = new double[columns][];
+        for (int c = 0; c < columns; c++) {
+            names[c] = readString(in, table);
+            double[] col = cols[c] = new double[n];
+            int encoding = in.get();
+            if (encoding == COLUMN_DECIMAL) {
+                long prev = 0;
+                for (int i = 0; i < n; i++) {
+                    long v = readVarint(in);
+                    if (v == 0) {
+                        col[i] = Double.NaN;
+                    } else {
+                        prev += unzigzag(v - 1);
+                        col[i] = prev / 10.0;
+                    }
+                }
+            } else if (encoding == COLUMN_RAW) {
+                for (int i = 0; i < n; i++) col[i] = in.getDouble();
+            } else {
+                throw new IllegalArgumentException("Unknown column encoding " + encoding);
+            }
+        }
+        return new ForecastSeries(times, names, cols, 0, n, utcOffset);
+    }
+
+    /** True if every value is NaN or exactly (bit for bit) k / 10 for a modest integer k. */
+    private static boolean isDecimal(double[] col, int off, int n) {
+        for (int i = off; i < off + n; i++) {
+            double v = col[i];
+            if (Double.isNaN(v)) continue;
+            if (!(Math.abs(v) < MAX_SCALED / 10)) return false;
+            long scaled = Math.round(v * 10);
+            if (Double.doubleToLongBits(scaled / 10.0) != Double.doubleToLongBits(v)) return false;
+        }
+        return true;
+    }
+
+    private static long seriesBound(ForecastSeries s, boolean batched) {
+        if (s == null) return 0;
+        long n = 5 + 5 + 5 + 1 + 10L * s.size();
+        for (String v : s.variables()) n += (batched ? 5 : utf8Bound(v)) + 1 + 10L * s.size();
+        return n;
+    }
+
+    private static void internNames(ForecastSeries s, Map<String, Integer> table, List<String> strings) {
+        for (String v : s.variables()) intern(v, table, strings);
+    }
+
+    private static void intern(String s, Map<String, Integer> table, List<String> strings) {
+        if (s != null && !table.containsKey(s)) {
+            table.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    // ------------------------------------------------------- strings & varints
+
+    /** Inline UTF‑8, or (in a batch) an index into the string table; 0 = null. */
+    private static void writeString(ByteBuffer out, String s, Map<String, Integer> table) {
+        if (table == null) {
+            writeUtf8(out, s);
+        } else {
+            writeVarint(out, s == null ? 0 : table.get(s) + 1);
+        }
+    }
+
+    private static String readString(ByteBuffer in, String[] table) {
+        if (table == null) {
+            return readUtf8(in);
+        }
+        int i = (int) readVarint(in);
+        if (i > table.length) throw new IllegalArgumentException("String index out of range: " + i);
+        return i == 0 ? null : table[i - 1];
+    }
+
+    /** Varint (UTF‑8 byte length + 1, 0 = null), then the UTF‑8 bytes. */
+    private static void writeUtf8(ByteBuffer out, String s) {
+        if (s == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        int len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) len += 1;
+            else if (c < 0x800) len += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) len += 1;
+            else len += 3;
+        }
+        writeVarint(out, len + 1);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6))).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)))
+                   .put((byte) (0x80 | ((cp >> 12) & 0x3F)))
+                   .put((byte) (0x80 | ((cp >> 6) & 0x3F)))
+                   .put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?'); // lone surrogate, as String.getBytes writes it
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)))
+                   .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                   .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static String readUtf8(ByteBuffer in) {
+        long v = readVarint(in);
+        if (v == 0) return null;
+        int len = (int) (v - 1);
+        if (len < 0 || len > in.remaining()) throw new BufferUnderflowException();
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+            in.position(in.position() + len);
+        } else {
+            byte[] b = new byte[len];
+            in.get(b);
+            s = new String(b, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private static long utf8Bound(String s) {
+        return 5 + (s == null ? 0 : 3L * s.length());
+    }
+
+    private static int checkedCount(ByteBuffer in) {
+        long n = readVarint(in);
+        if (n < 0 || n > in.remaining()) {
+            throw new IllegalArgumentException("Implausible count " + n + " with " + in.remaining() + " bytes left");
+        }
+        return (int) n;
+    }
+
+    private static void checkHeader(ByteBuffer in, short magic) {
+        short m = in.getShort();
+        if (m != magic) {
+            throw new IllegalArgumentException("Not a WeatherData " + (magic == BATCH_MAGIC ? "batch" : "record")
+                    + ": magic 0x" + Integer.toHexString(m & 0xFFFF));
+        }
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported WeatherData encoding version " + version);
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** Unsigned LEB128. */
+    private static void writeVarint(ByteBuffer out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
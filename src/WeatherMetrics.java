@@ -0,0 +1,313 @@
+// src/WeatherMetrics.java
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Low‑overhead instrumentation of a {@link WeatherAPIClient}.
+ *
+ * Phases (one {@link LatencyHistogram} each):
+ *   • connect     – request sent → response headers (DNS/TCP/TLS on a new
+ *                   connection, plus server time); one sample per attempt
+ *   • geocode     – a whole Geocoding API lookup (cache misses only)
+ *   • forecast    – a whole Forecast API call, single or multi‑location
+ *   • read        – time blocked reading the response body
+ *   • parse       – JSON parsing, excluding read and model build
+ *   • model_build – turning parsed values into {@link WeatherData}
+ *
+ * Geocode, forecast, parse and model build also sum the bytes allocated by
+ * the calling thread (where the JVM supports it), reported as B/op.
+ * Counters cover lookups, errors by kind, stale results, retries and
+ * decoded bytes read; cache hit/miss counts come from the client's caches.
+ *
+ * Exposed as an MXBean via {@link #register(String)} and as plain text via
+ * {@link #dump()}.
+ */
+public class WeatherMetrics implements WeatherMetricsMXBean {
+    public enum Phase {
+        CONNECT, GEOCODE, FORECAST, READ, PARSE, MODEL_BUILD;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Snapshot of one phase, in milliseconds (an MXBean composite type). */
+    public static class PhaseStats {
+        private final long count;
+        private final double meanMillis, p50Millis, p90Millis, p99Millis, maxMillis;
+        private final long allocatedBytesPerOp;
+
+        PhaseStats(LatencyHistogram h, long allocatedBytesPerOp) {
+            this.count = h.getCount();
+            this.meanMillis = h.getMeanNanos() / 1e6;
+            this.p50Millis = h.getValueAtPercentile(50) / 1e6;
+            this.p90Millis = h.getValueAtPercentile(90) / 1e6;
+            this.p99Millis = h.getValueAtPercentile(99) / 1e6;
+            this.maxMillis = h.getMaxNanos() / 1e6;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+        }
+
+        public long getCount()              { return count; }
+        public double getMeanMillis()       { return meanMillis; }
+        public double getP50Millis()        { return p50Millis; }
+        public double getP90Millis()        { return p90Millis; }
+        public double getP99Millis()        { return p99Millis; }
+        public double getMaxMillis()        { return maxMillis; }
+        /** -1 when allocation is not measured for this phase. */
+        public long getAllocatedBytesPerOp() { return allocatedBytesPerOp; }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final Phase[] phases = Phase.values();
+    private final LatencyHistogram[] latency = new LatencyHistogram[phases.length];
+    private final LongAdder[] allocatedBytes = new LongAdder[phases.length];
+    private final LongAdder[] allocationSamples = new LongAdder[phases.length];
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedgeable = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesThrottled = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final AtomicLongArray errors = new AtomicLongArray(WeatherResult.ErrorKind.values().length);
+
+    private final GeocodeCache geocodeCache;
+    private final ForecastCache forecastCache;
+    private ObjectName objectName;
+
+    public WeatherMetrics(GeocodeCache geocodeCache, ForecastCache forecastCache) {
+        this.geocodeCache = geocodeCache;
+        this.forecastCache = forecastCache;
+        for (int i = 0; i < phases.length; i++) {
+            latency[i] = new LatencyHistogram();
+            allocatedBytes[i] = new LongAdder();
+            allocationSamples[i] = new LongAdder();
+        }
+    }
+
+    // -------------------------------------------------------------- recording
+
+    public void record(Phase phase, long nanos) {
+        latency[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a phase that started at {@code startNanos} and, if
+     * {@code startAllocated} is not -1, the bytes this thread allocated since.
+     */
+    public void record(Phase phase, long startNanos, long startAllocated) {
+        latency[phase.ordinal()].record(System.nanoTime() - startNanos);
+        if (startAllocated >= 0) {
+            allocatedBytes[phase.ordinal()].add(threadAllocatedBytes() - startAllocated);
+            allocationSamples[phase.ordinal()].increment();
+        }
+    }
+
+    /** Adds one allocation sample to a phase whose time is recorded separately. */
+    public void recordAllocation(Phase phase, long bytes) {
+        allocatedBytes[phase.ordinal()].add(bytes);
+        allocationSamples[phase.ordinal()].increment();
+    }
+
+    /** Bytes allocated so far by the calling thread, or -1 if unsupported. */
+    public static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    public void lookup(int count) {
+        lookups.add(count);
+    }
+
+    /** Counts a lookup outcome: errors and stale results by kind. */
+    public void outcome(WeatherResult r) {
+        if (r.kind != null) {
+            errors.incrementAndGet(r.kind.ordinal());
+        }
+        if (r.stale) {
+            staleServed.increment();
+        }
+    }
+
+    public void retry() {
+        retries.increment();
+    }
+
+    public void hedgeable()       { hedgeable.increment(); }
+    public void hedge()           { hedges.increment(); }
+    public void hedgeWon()        { hedgeWins.increment(); }
+    public void hedgeThrottled()  { hedgesThrottled.increment(); }
+    public void deadlineExceeded() { deadlinesExceeded.increment(); }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public LatencyHistogram latency(Phase phase) {
+        return latency[phase.ordinal()];
+    }
+
+    // ------------------------------------------------------------ MXBean view
+
+    @Override
+    public Map<String, PhaseStats> getPhases() {
+        Map<String, PhaseStats> out = new LinkedHashMap<>();
+        for (Phase p : phases) {
+            out.put(p.label(), new PhaseStats(latency[p.ordinal()], allocatedPerOp(p)));
+        }
+        return out;
+    }
+
+    @Override public long getLookups()    { return lookups.sum(); }
+    @Override public long getStaleServed() { return staleServed.sum(); }
+    @Override public long getRetries()    { return retries.sum(); }
+    @Override public long getBytesRead()  { return bytesRead.sum(); }
+    @Override public long getHedgeableCalls()    { return hedgeable.sum(); }
+    @Override public long getHedges()            { return hedges.sum(); }
+    @Override public long getHedgeWins()         { return hedgeWins.sum(); }
+    @Override public long getHedgesThrottled()   { return hedgesThrottled.sum(); }
+    @Override public long getDeadlinesExceeded() { return deadlinesExceeded.sum(); }
+
+    @Override
+    public double getHedgeRatePercent() {
+        long calls = hedgeable.sum();
+        return calls == 0 ? 0 : 100.0 * hedges.sum() / calls;
+    }
+
+    @Override
+    public long getErrors() {
+        long sum = 0;
+        for (int i = 0; i < errors.length(); i++) sum += errors.get(i);
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByKind() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (WeatherResult.ErrorKind k : WeatherResult.ErrorKind.values()) {
+            out.put(k.name(), errors.get(k.ordinal()));
+        }
+        return out;
+    }
+
+    @Override public long getGeocodeCacheHits()       { return geocodeCache.getHitCount(); }
+    @Override public long getGeocodeCacheMisses()     { return geocodeCache.getMissCount(); }
+    @Override public long getForecastCacheHits()      { return forecastCache.getHitCount(); }
+    @Override public long getForecastCacheMisses()    { return forecastCache.getMissCount(); }
+    @Override public long getForecastCacheCoalesced() { return forecastCache.getCoalescedCount(); }
+
+    /** Multi‑line, human‑readable summary of every phase and counter. */
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-12s %8s %9s %9s %9s %9s %9s %11s%n",
+                "phase", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc B/op"));
+        for (Map.Entry<String, PhaseStats> e : getPhases().entrySet()) {
+            PhaseStats s = e.getValue();
+            sb.append(String.format(Locale.ROOT, "%-12s %8d %9.3f %9.3f %9.3f %9.3f %9.3f %11s%n",
+                    e.getKey(), s.getCount(), s.getMeanMillis(), s.getP50Millis(),
+                    s.getP90Millis(), s.getP99Millis(), s.getMaxMillis(),
+                    s.getAllocatedBytesPerOp() < 0 ? "-" : String.valueOf(s.getAllocatedBytesPerOp())));
+        }
+        sb.append(String.format(Locale.ROOT, "lookups=%d errors=%d stale=%d retries=%d bytesRead=%d%n",
+                getLookups(), getErrors(), getStaleServed(), getRetries(), getBytesRead()));
+        if (getHedgeableCalls() > 0) {
+            sb.append(String.format(Locale.ROOT, "budgeted calls=%d hedges=%d (%.1f%%) won=%d throttled=%d deadlinesExceeded=%d%n",
+                    getHedgeableCalls(), getHedges(), getHedgeRatePercent(), getHedgeWins(),
+                    getHedgesThrottled(), getDeadlinesExceeded()));
+        }
+        sb.append(String.format(Locale.ROOT, "geocodeCache hits=%d misses=%d | forecastCache hits=%d misses=%d coalesced=%d%n",
+                getGeocodeCacheHits(), getGeocodeCacheMisses(),
+                getForecastCacheHits(), getForecastCacheMisses(), getForecastCacheCoalesced()));
+        if (getErrors() > 0) {
+            sb.append("errors by kind:");
+            for (Map.Entry<String, Long> e : getErrorsByKind().entrySet()) {
+                if (e.getValue() > 0) sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < phases.length; i++) {
+            latency[i].reset();
+            allocatedBytes[i].reset();
+            allocationSamples[i].reset();
+        }
+        lookups.reset();
+        staleServed.reset();
+        retries.reset();
+        hedgeable.reset();
+        hedges.reset();
+        hedgeWins.reset();
+        hedgesThrottled.reset();
+        deadlinesExceeded.reset();
+        bytesRead.reset();
+        for (int i = 0; i < errors.length(); i++) errors.set(i, 0);
+    }
+
+    // ------------------------------------------------------------------- JMX
+
+    /**
+     * Registers this object with the platform MBean server as
+     * {@code weather:type=WeatherMetrics,name=<name>}, replacing any earlier
+     * registration under that name.
+     */
+    public synchronized ObjectName register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("weather:type=WeatherMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(on)) {
+                server.unregisterMBean(on);
+            }
+            server.registerMBean(this, on);
+            objectName = on;
+            return on;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics MBean", e);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ignored) {
+        } finally {
+            objectName = null;
+        }
+    }
+
+    private long allocatedPerOp(Phase p) {
+        long n = allocationSamples[p.ordinal()].sum();
+        return n == 0 ? -1 : allocatedBytes[p.ordinal()].sum() / n;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+                return hotspot;
+            }
+        } catch (RuntimeException ignored) {
+            // not a HotSpot‑compatible JVM: allocation is simply not reported
+        }
+        return null;
+    }
+}
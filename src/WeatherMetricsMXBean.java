@@ -0,0 +1,45 @@
+// src/WeatherMetricsMXBean.java
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link WeatherMetrics}. Registered under
+ * {@code weather:type=WeatherMetrics,name=<client>}; browse it with JConsole
+ * or VisualVM.
+ */
+public interface WeatherMetricsMXBean {
+    /** Per‑phase latency summary, keyed by phase name (connect, geocode, …). */
+    Map<String, WeatherMetrics.PhaseStats> getPhases();
+
+    long getLookups();
+    long getErrors();
+    /** Failed or stale lookups by {@link WeatherResult.ErrorKind}. */
+    Map<String, Long> getErrorsByKind();
+    long getStaleServed();
+    long getRetries();
+    /** Upstream calls made under a time budget, i.e. those that may be hedged. */
+    long getHedgeableCalls();
+    /** Duplicate requests sent because the first one was slower than the phase's p95. */
+    long getHedges();
+    /** Hedges that answered before the original request. */
+    long getHedgeWins();
+    /** Hedges not sent because the hedge rate cap was reached. */
+    long getHedgesThrottled();
+    /** Hedges as a percentage of hedgeable calls. */
+    double getHedgeRatePercent();
+    /** Budgeted lookups whose time budget ran out. */
+    long getDeadlinesExceeded();
+    /** Decoded response bytes read from upstream. */
+    long getBytesRead();
+
+    long getGeocodeCacheHits();
+    long getGeocodeCacheMisses();
+    long getForecastCacheHits();
+    long getForecastCacheMisses();
+    long getForecastCacheCoalesced();
+
+    /** Same text as {@link WeatherMetrics#dump()}. */
+    String dump();
+
+    void reset();
+}
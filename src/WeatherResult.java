@@ -0,0 +1,71 @@
+// src/WeatherResult.java
+
+/**
+ * Outcome of one city lookup:
+ *   • success → {@code data} is set, {@code error} is null
+ *   • stale   → {@code data} is an expired (or nearby) cached forecast served
+ *               because upstream failed or was too slow; {@code kind}/{@code error} say why
+ *   • failure → {@code data} is null, {@code kind} classifies the failure and
+ *               {@code error} explains it (e.g. "City not found",
+ *               "Forecast request failed: …")
+ */
+public class WeatherResult {
+    /** Why a lookup did not produce fresh data. */
+    public enum ErrorKind {
+        /** Geocoding found no such city. */
+        NOT_FOUND,
+        /** Upstream answered 429, or the local rate limiter had no capacity. */
+        RATE_LIMITED,
+        /** The circuit breaker is open; upstream was not called. */
+        CIRCUIT_OPEN,
+        /** Upstream answered with another non‑200 status after retries. */
+        UPSTREAM_ERROR,
+        /** Connection, timeout or malformed‑body failure. */
+        IO_ERROR,
+        /** The response had no usable current data. */
+        NO_DATA,
+        /** The lookup was interrupted or cancelled. */
+        CANCELLED,
+        /** The lookup's time budget ran out before upstream answered. */
+        DEADLINE_EXCEEDED,
+        /** Any other unexpected failure. */
+        INTERNAL
+    }
+
+    public final String city;
+    public final WeatherData data;
+    public final ErrorKind kind;
+    public final String error;
+    public final boolean stale;
+
+    private WeatherResult(String city, WeatherData data, ErrorKind kind, String error, boolean stale) {
+        this.city = city;
+        this.data = data;
+        this.kind = kind;
+        this.error = error;
+        this.stale = stale;
+    }
+
+    public static WeatherResult success(String city, WeatherData data) {
+        return new WeatherResult(city, data, null, null, false);
+    }
+
+    public static WeatherResult stale(String city, WeatherData data, ErrorKind kind, String error) {
+        return new WeatherResult(city, data, kind, error, true);
+    }
+
+    public static WeatherResult failure(String city, ErrorKind kind, String error) {
+        return new WeatherResult(city, null, kind, error, false);
+    }
+
+    /** True when there is data to show, fresh or stale. */
+    public boolean isSuccess() {
+        return data != null;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccess()) return city + ": " + kind + " – " + error;
+        return stale ? city + ": OK (stale, " + error + ")" : city + ": OK";
+    }
+}
@@ -0,0 +1,350 @@
+// src/WeatherServer.java
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Headless HTTP front end for {@link WeatherAPIClient}, so several internal
+ * tools share one process, one cache and one set of upstream connections.
+ *
+ * Endpoints (all GET, JSON responses):
+ *   • /weather?city=Bangkok                      → one city (404 if unknown,
+ *                                                  429/502/503 on upstream trouble)
+ *   • /weather/batch?city=Bangkok&amp;city=Tokyo     → many cities; also accepts
+ *     cities=Bangkok,Tokyo or a POST body with one city per line
+ *     (at most 1000 cities and a 64 KiB body, else 413)
+ *   • /health                                    → {"status":"UP"}
+ *   • /stats                                     → request + cache counters
+ *   • /metrics                                   → per‑phase latency dump (text)
+ * Add series=true to /weather or /weather/batch to include the hourly/daily columns.
+ * /weather?city=...&amp;format=binary answers with {@link WeatherDataCodec} bytes
+ * (series always included; a stale answer sets X-Weather-Stale), errors stay JSON.
+ * /weather?city=...&amp;budget_ms=300 answers within about that time (hedging
+ * slow upstream calls, else the best cached data marked stale, else 504).
+ *
+ * Requests run on a virtual‑thread executor where available; repeated
+ * queries are answered from the shared forecast cache and concurrent misses
+ * are coalesced into a single upstream call.
+ *
+ * Usage: java -cp "lib/*;src" WeatherServer [port] [host]
+ *   port defaults to 8080 (or -Dweather.server.port); host defaults to the
+ *   loopback address (or -Dweather.server.host, e.g. 0.0.0.0 to listen on all
+ *   interfaces — there is no authentication, so only do that behind a proxy).
+ */
+public class WeatherServer {
+    /** Largest POST body /weather/batch reads (413 above it). */
+    static final int MAX_BATCH_BODY_BYTES = 64 * 1024;
+    /** Most cities one /weather/batch request may name (413 above it). */
+    static final int MAX_BATCH_CITIES = 1000;
+
+    private final WeatherAPIClient apiClient;
+    private final HttpServer server;
+    private final ExecutorService executor = WeatherAPIClient.newWorkerExecutor("weather-server");
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private final AtomicLong weatherRequests = new AtomicLong();
+    private final AtomicLong batchRequests = new AtomicLong();
+    private final AtomicLong batchCities = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    static {
+        // Small JSON responses otherwise sit behind Nagle + delayed ACKs (~40 ms each)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /** Listens on the loopback interface only. */
+    public WeatherServer(WeatherAPIClient apiClient, int port) throws IOException {
+        this(apiClient, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public WeatherServer(WeatherAPIClient apiClient, InetAddress host, int port) throws IOException {
+        this.apiClient = apiClient;
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/weather", this::handleWeather);
+        server.createContext("/weather/batch", this::handleBatch);
+        server.createContext("/health", ex -> send(ex, 200, new JSONObject().put("status", "UP")));
+        server.createContext("/stats", ex -> send(ex, 200, stats()));
+        server.createContext("/metrics", ex -> sendText(ex, apiClient.getMetrics().dump()));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleWeather(HttpExchange ex) throws IOException {
+        if (!ex.getRequestURI().getPath().equals("/weather")) {
+            send(ex, 404, error("Unknown path"));
+            return;
+        }
+        if (!"GET".equals(ex.getRequestMethod())) {
+            send(ex, 405, error("Use GET"));
+            return;
+        }
+        weatherRequests.incrementAndGet();
+        Map<String, List<String>> params = queryParams(ex);
+        String city = first(params, "city");
+        if (city == null || city.trim().isEmpty()) {
+            send(ex, 400, error("Missing city parameter"));
+            return;
+        }
+        Long budgetMs = null;
+        String budget = first(params, "budget_ms");
+        if (budget != null) {
+            try {
+                budgetMs = Long.parseLong(budget.trim());
+            } catch (NumberFormatException e) {
+                budgetMs = -1L;
+            }
+            if (budgetMs <= 0) {
+                send(ex, 400, error("budget_ms must be a positive number of milliseconds"));
+                return;
+            }
+            if (budgetMs > WeatherAPIClient.MAX_BUDGET.toMillis()) {
+                send(ex, 400, error("budget_ms must be at most " + WeatherAPIClient.MAX_BUDGET.toMillis()));
+                return;
+            }
+        }
+        try {
+            WeatherResult r = budgetMs != null
+                    ? apiClient.fetchWeather(city, Duration.ofMillis(budgetMs))
+                    : apiClient.fetchWeather(city);
+            if (!r.isSuccess()) {
+                if (r.kind == WeatherResult.ErrorKind.NOT_FOUND) {
+                    notFound.incrementAndGet();
+                } else {
+                    errors.incrementAndGet();
+                }
+                send(ex, statusFor(r.kind), resultError(r));
+                return;
+            }
+            if ("binary".equals(first(params, "format"))) {
+                if (r.stale) {
+                    ex.getResponseHeaders().set("X-Weather-Stale", String.valueOf(r.error));
+                }
+                sendBytes(ex, WeatherDataCodec.CONTENT_TYPE, WeatherDataCodec.toBytes(r.data));
+                return;
+            }
+            JSONObject body = r.data.toJson("true".equals(first(params, "series")));
+            if (r.stale) {
+                body.put("stale", true).put("stale_reason", r.error);
+            }
+            send(ex, 200, body);
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            send(ex, 500, error(e.toString()));
+        }
+    }
+
+    private void handleBatch(HttpExchange ex) throws IOException {
+        if (!ex.getRequestURI().getPath().equals("/weather/batch")) {
+            send(ex, 404, error("Unknown path"));
+            return;
+        }
+        String method = ex.getRequestMethod();
+        if (!"GET".equals(method) && !"POST".equals(method)) {
+            send(ex, 405, error("Use GET or POST"));
+            return;
+        }
+        batchRequests.incrementAndGet();
+        Map<String, List<String>> params = queryParams(ex);
+        List<String> cities = new ArrayList<>(params.getOrDefault("city", new ArrayList<>()));
+        String csv = first(params, "cities");
+        if (csv != null) {
+            for (String c : csv.split(",")) cities.add(c);
+        }
+        if ("POST".equals(method)) {
+            byte[] bytes = ex.getRequestBody().readNBytes(MAX_BATCH_BODY_BYTES + 1);
+            if (bytes.length > MAX_BATCH_BODY_BYTES) {
+                send(ex, 413, error("Request body larger than " + MAX_BATCH_BODY_BYTES + " bytes"));
+                return;
+            }
+            String body = new String(bytes, StandardCharsets.UTF_8);
+            for (String line : body.split("\\R")) cities.add(line);
+        }
+        cities.removeIf(c -> c.trim().isEmpty());
+        if (cities.isEmpty()) {
+            send(ex, 400, error("No cities given"));
+            return;
+        }
+        if (cities.size() > MAX_BATCH_CITIES) {
+            send(ex, 413, error("At most " + MAX_BATCH_CITIES + " cities per batch"));
+            return;
+        }
+        batchCities.addAndGet(cities.size());
+
+        boolean series = "true".equals(first(params, "series"));
+        try {
+            JSONArray results = new JSONArray();
+            for (WeatherResult r : apiClient.fetchWeatherForCities(cities).values()) {
+                JSONObject o = new JSONObject().put("query", r.city);
+                if (r.isSuccess()) {
+                    o.put("data", r.data.toJson(series));
+                    if (r.stale) o.put("stale", true);
+                } else {
+                    o.put("error", r.error).put("kind", r.kind.name());
+                }
+                results.put(o);
+            }
+            send(ex, 200, new JSONObject().put("results", results));
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            send(ex, 500, error(e.toString()));
+        }
+    }
+
+    private JSONObject stats() {
+        GeocodeCache geo = apiClient.getGeocodeCache();
+        ForecastCache fc = apiClient.getForecastCache();
+        return new JSONObject()
+            .put("uptime_seconds", (System.currentTimeMillis() - startedAtMillis) / 1000)
+            .put("requests", new JSONObject()
+                .put("weather", weatherRequests.get())
+                .put("batch", batchRequests.get())
+                .put("batch_cities", batchCities.get())
+                .put("not_found", notFound.get())
+                .put("errors", errors.get()))
+            .put("geocode_cache", new JSONObject()
+                .put("size", geo.size())
+                .put("hits", geo.getHitCount())
+                .put("misses", geo.getMissCount()))
+            .put("forecast_cache", new JSONObject()
+                .put("size", fc.size())
+                .put("hits", fc.getHitCount())
+                .put("misses", fc.getMissCount())
+                .put("coalesced", fc.getCoalescedCount())
+                .put("grid_degrees", apiClient.getGridDegrees()))
+            .put("gazetteer", gazetteerStats())
+            .put("upstream", upstreamStats());
+    }
+
+    private Object gazetteerStats() {
+        GazetteerIndex g = apiClient.getGazetteer();
+        if (g == null) {
+            return JSONObject.NULL;
+        }
+        return new JSONObject()
+            .put("names", g.size())
+            .put("hits", g.getHitCount())
+            .put("misses", g.getMissCount());
+    }
+
+    private JSONObject upstreamStats() {
+        TokenBucket limiter = apiClient.getRateLimiter();
+        JSONObject o = new JSONObject()
+            .put("geocode_circuit", apiClient.getGeocodeBreaker().getState().name())
+            .put("forecast_circuit", apiClient.getForecastBreaker().getState().name())
+            .put("circuit_rejected", apiClient.getGeocodeBreaker().getRejectedCount()
+                                   + apiClient.getForecastBreaker().getRejectedCount());
+        if (limiter != null) {
+            o.put("rate_throttled", limiter.getThrottledCount())
+             .put("rate_rejected", limiter.getRejectedCount());
+        }
+        return o;
+    }
+
+    /** HTTP status for a failed lookup. */
+    private static int statusFor(WeatherResult.ErrorKind kind) {
+        switch (kind) {
+            case NOT_FOUND:    return 404;
+            case RATE_LIMITED: return 429;
+            case CIRCUIT_OPEN:
+            case CANCELLED:    return 503;
+            case DEADLINE_EXCEEDED: return 504;
+            case INTERNAL:     return 500;
+            default:           return 502;
+        }
+    }
+
+    private static JSONObject resultError(WeatherResult r) {
+        return error(r.error).put("kind", r.kind.name());
+    }
+
+    private static Map<String, List<String>> queryParams(HttpExchange ex) {
+        Map<String, List<String>> params = new java.util.HashMap<>();
+        String query = ex.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            String key = URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String first(Map<String, List<String>> params, String key) {
+        List<String> values = params.get(key);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static JSONObject error(String message) {
+        return new JSONObject().put("error", message);
+    }
+
+    private static void send(HttpExchange ex, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendText(HttpExchange ex, String text) throws IOException {
+        sendBytes(ex, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendBytes(HttpExchange ex, String contentType, byte[] bytes) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** Entry point. */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0
+                ? Integer.parseInt(args[0])
+                : Integer.getInteger("weather.server.port", 8080);
+        String hostName = args.length > 1 ? args[1] : System.getProperty("weather.server.host");
+        InetAddress host = hostName == null || hostName.trim().isEmpty()
+                ? InetAddress.getLoopbackAddress()
+                : InetAddress.getByName(hostName.trim());
+        WeatherAPIClient client = new WeatherAPIClient();
+        client.setGazetteer(WeatherAPIClient.configuredGazetteer());
+        client.getMetrics().register("WeatherServer");
+        WeatherServer ws = new WeatherServer(client, host, port);
+        ws.start();
+        System.out.println("Weather service listening on http://" + host.getHostAddress() + ":" + ws.port()
+                + "/weather?city=…");
+    }
+}